@@ -24,9 +24,15 @@ package pascal.taie.analysis.pta.ci;
 
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
-import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.AllocationTypeBasedModel;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Context-insensitive pointer analysis.
@@ -35,17 +41,113 @@ public class CIPTA extends ProgramAnalysis {
 
     public static final String ID = "cipta";
 
+    /**
+     * Option for propagating points-to sets in waves along
+     * a topological order of the pointer flow graph.
+     */
+    private static final String WAVE = "wave";
+
+    /**
+     * Option for the order in which the work-list polls pointers,
+     * i.e., fifo, lifo, lrf, smallest-pts or topo.
+     */
+    private static final String WORK_LIST = "work-list";
+
+    /**
+     * Option for solving on the Datalog engine instead of the solver.
+     */
+    private static final String DATALOG = "datalog";
+
+    /**
+     * Option for evaluating the Datalog rules with multiple threads.
+     */
+    private static final String DATALOG_PARALLEL = "datalog-parallel";
+
+    /**
+     * Option for checking that the result of the Datalog engine equals
+     * the result of the solver.
+     */
+    private static final String CHECK_DATALOG = "check-datalog";
+
+    /**
+     * Option for solving on multiple threads with {@link ParallelSolver}.
+     */
+    private static final String PARALLEL = "parallel";
+
+    /**
+     * Option for checking that the result of the parallel solver equals
+     * the result of the sequential solver.
+     */
+    private static final String CHECK_PARALLEL = "check-parallel";
+
     public CIPTA(AnalysisConfig config) {
         super(config);
     }
 
     @Override
     public PointerAnalysisResult analyze() {
-        HeapModel heapModel = new AllocationSiteBasedModel(getOptions());
-        Solver solver = new Solver(heapModel);
-        solver.solve();
-        CIPTAResult result = solver.getResult();
+        HeapModel heapModel = new AllocationTypeBasedModel(getOptions());
+        CIPTAResult result;
+        if (getOptions().getBooleanOrDefault(DATALOG, false)) {
+            int nThreads = getOptions().getBooleanOrDefault(DATALOG_PARALLEL, false) ?
+                    Runtime.getRuntime().availableProcessors() : 1;
+            DatalogSolver solver = new DatalogSolver(heapModel, nThreads);
+            solver.solve();
+            result = solver.getResult();
+            if (getOptions().getBooleanOrDefault(CHECK_DATALOG, false)) {
+                Solver expected = new Solver(heapModel);
+                expected.solve();
+                checkSameResult("Datalog", expected.getResult(), result);
+            }
+        } else if (getOptions().getBooleanOrDefault(PARALLEL, false)) {
+            ParallelSolver solver = new ParallelSolver(heapModel,
+                    Runtime.getRuntime().availableProcessors());
+            solver.solve();
+            result = solver.getResult();
+            if (getOptions().getBooleanOrDefault(CHECK_PARALLEL, false)) {
+                Solver expected = new Solver(heapModel);
+                expected.solve();
+                checkSameResult("Parallel", expected.getResult(), result);
+            }
+        } else {
+            Solver solver = new Solver(heapModel,
+                    getOptions().getBooleanOrDefault(WAVE, false),
+                    WorkList.Policy.of(getOptions().getString(WORK_LIST)));
+            solver.solve();
+            result = solver.getResult();
+        }
         new ResultProcessor(getOptions()).process(result);
         return result;
     }
+
+    /**
+     * Checks that the given result has the same points-to sets of
+     * variables, objects and call graph edges as the expected result.
+     * Variables absent in a result are treated as pointing to nothing.
+     *
+     * @param engine name of the engine that computes the given result.
+     */
+    private static void checkSameResult(String engine,
+                                        CIPTAResult expected, CIPTAResult given) {
+        Set<Var> vars = Sets.newSet();
+        vars.addAll(expected.getVars());
+        vars.addAll(given.getVars());
+        for (Var var : vars) {
+            if (!expected.getPointsToSet(var).equals(given.getPointsToSet(var))) {
+                throw new AnalysisException(String.format(
+                        "%s pointer analysis gives different points-to set of %s, " +
+                                "expected: %s, given: %s", engine, var,
+                        expected.getPointsToSet(var), given.getPointsToSet(var)));
+            }
+        }
+        if (!Set.copyOf(expected.getObjects()).equals(Set.copyOf(given.getObjects()))) {
+            throw new AnalysisException(
+                    engine + " pointer analysis gives different objects");
+        }
+        if (!expected.getCallGraph().edges().collect(Collectors.toSet())
+                .equals(given.getCallGraph().edges().collect(Collectors.toSet()))) {
+            throw new AnalysisException(
+                    engine + " pointer analysis gives different call graph");
+        }
+    }
 }
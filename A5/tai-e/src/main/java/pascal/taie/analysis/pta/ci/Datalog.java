@@ -0,0 +1,374 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.util.AnalysisException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToIntFunction;
+
+/**
+ * A minimal Datalog engine with semi-naive evaluation.
+ * <p>
+ * A rule derives its head atom from a conjunction of body literals,
+ * which are atoms over {@link Relation}s and functors computed by
+ * Java functions. The variables of a rule are numbered from 0.
+ * <p>
+ * Each call of {@link #step()} is an iteration of semi-naive evaluation:
+ * for each body atom whose relation has delta rows, a variant of the rule
+ * joins the delta rows of the atom with the old rows of the atoms before
+ * it and all rows of the atoms after it, so that each derivation is
+ * produced from new tuples only. The variants only read the relations,
+ * thus they are evaluated by the worker threads of a pool, and then the
+ * derived tuples are added to the relations in the order of the rules.
+ * New tuples may also be added to the relations between iterations,
+ * e.g., facts extracted on demand.
+ */
+class Datalog {
+
+    /**
+     * Body literals of rules.
+     */
+    sealed interface Literal permits Atom, Functor {
+    }
+
+    /**
+     * Atom over a relation, whose terms are the variables of the rule.
+     */
+    record Atom(Relation relation, int... vars) implements Literal {
+    }
+
+    /**
+     * Functor that computes the value of its output variable from
+     * the values of its input variables. The function returns a negative
+     * value if there is no output for the inputs. If {@code output} is
+     * negative, the functor is a filter that passes the inputs for
+     * which the function returns a non-negative value. The function
+     * must be thread-safe if the rules are evaluated in parallel.
+     */
+    record Functor(ToIntFunction<int[]> function, int output, int... inputs)
+            implements Literal {
+    }
+
+    record Rule(Atom head, Literal... body) {
+    }
+
+    /**
+     * Minimum number of rule variants in an iteration to evaluate
+     * them in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 2;
+
+    private final List<Relation> relations = new ArrayList<>();
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param nThreads number of worker threads, 1 for sequential evaluation.
+     */
+    Datalog(int nThreads) {
+        this.pool = nThreads > 1 ? new ForkJoinPool(nThreads) : null;
+    }
+
+    Relation newRelation(String name, int arity) {
+        Relation relation = new Relation(name, arity);
+        relations.add(relation);
+        return relation;
+    }
+
+    void addRule(Atom head, Literal... body) {
+        rules.add(new Rule(head, body));
+    }
+
+    /**
+     * Performs an iteration of semi-naive evaluation.
+     *
+     * @return false if no relation has changed since the last iteration,
+     * i.e., the fixed point is reached, otherwise true.
+     */
+    boolean step() {
+        boolean changed = false;
+        for (Relation relation : relations) {
+            changed |= relation.advance();
+        }
+        if (!changed) {
+            return false;
+        }
+        List<Variant> variants = new ArrayList<>();
+        for (Rule rule : rules) {
+            Literal[] body = rule.body();
+            for (int i = 0; i < body.length; ++i) {
+                if (body[i] instanceof Atom atom && atom.relation().hasDelta()) {
+                    variants.add(new Variant(rule, i));
+                }
+            }
+        }
+        List<Relation.IntList> results;
+        if (pool != null && variants.size() >= PARALLEL_THRESHOLD) {
+            try {
+                results = pool.submit(() -> variants.parallelStream()
+                        .map(this::evaluate)
+                        .toList()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AnalysisException("Datalog evaluation is interrupted", e);
+            } catch (ExecutionException e) {
+                throw new AnalysisException("Datalog evaluation failed", e.getCause());
+            }
+        } else {
+            results = variants.stream().map(this::evaluate).toList();
+        }
+        for (int i = 0; i < variants.size(); ++i) {
+            Relation head = variants.get(i).rule().head().relation();
+            Relation.IntList tuples = results.get(i);
+            int arity = head.getArity();
+            int[] tuple = new int[arity];
+            for (int j = 0; j < tuples.size(); j += arity) {
+                for (int k = 0; k < arity; ++k) {
+                    tuple[k] = tuples.get(j + k);
+                }
+                head.add(tuple);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Variant of a rule in which the body atom at given index
+     * takes the delta rows of its relation.
+     */
+    private record Variant(Rule rule, int deltaIndex) {
+    }
+
+    /**
+     * @return the head tuples derived by given variant, flattened.
+     */
+    private Relation.IntList evaluate(Variant variant) {
+        Rule rule = variant.rule();
+        int nVars = 0;
+        for (int v : rule.head().vars()) {
+            nVars = Math.max(nVars, v + 1);
+        }
+        for (Literal literal : rule.body()) {
+            int[] vars = literal instanceof Atom atom ? atom.vars() :
+                    ((Functor) literal).inputs();
+            for (int v : vars) {
+                nVars = Math.max(nVars, v + 1);
+            }
+            if (literal instanceof Functor functor) {
+                nVars = Math.max(nVars, functor.output() + 1);
+            }
+        }
+        Join join = new Join(rule, variant.deltaIndex(),
+                plan(rule, variant.deltaIndex(), nVars), nVars);
+        join.join(0);
+        return join.results;
+    }
+
+    /**
+     * Plans the order of the body literals of a variant: the delta atom
+     * first, then greedily the functors whose inputs are bound, or else
+     * the atom with the most bound variables.
+     */
+    private static int[] plan(Rule rule, int deltaIndex, int nVars) {
+        Literal[] body = rule.body();
+        boolean[] bound = new boolean[nVars];
+        boolean[] planned = new boolean[body.length];
+        int[] plan = new int[body.length];
+        int next = deltaIndex;
+        for (int i = 0; i < body.length; ++i) {
+            plan[i] = next;
+            planned[next] = true;
+            if (body[next] instanceof Atom atom) {
+                for (int v : atom.vars()) {
+                    bound[v] = true;
+                }
+            } else if (((Functor) body[next]).output() >= 0) {
+                bound[((Functor) body[next]).output()] = true;
+            }
+            next = -1;
+            int maxBound = -1;
+            for (int j = 0; j < body.length && i + 1 < body.length; ++j) {
+                if (planned[j]) {
+                    continue;
+                }
+                if (body[j] instanceof Functor functor) {
+                    if (Arrays.stream(functor.inputs()).allMatch(v -> bound[v])) {
+                        next = j;
+                        break;
+                    }
+                } else {
+                    int nBound = (int) Arrays.stream(((Atom) body[j]).vars())
+                            .filter(v -> bound[v])
+                            .count();
+                    if (nBound > maxBound) {
+                        next = j;
+                        maxBound = nBound;
+                    }
+                }
+            }
+            if (next < 0 && i + 1 < body.length) {
+                throw new AnalysisException("Unbound inputs of functor in rule with head "
+                        + rule.head().relation());
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Nested-loop join of the body literals of a variant, which looks up
+     * the rows of an atom by the index of its first bound variable.
+     */
+    private static class Join {
+
+        private final Rule rule;
+
+        private final int deltaIndex;
+
+        private final int[] plan;
+
+        private final int[] binding;
+
+        private final boolean[] bound;
+
+        private final Relation.IntList results = new Relation.IntList();
+
+        private Join(Rule rule, int deltaIndex, int[] plan, int nVars) {
+            this.rule = rule;
+            this.deltaIndex = deltaIndex;
+            this.plan = plan;
+            this.binding = new int[nVars];
+            this.bound = new boolean[nVars];
+        }
+
+        private void join(int depth) {
+            if (depth == plan.length) {
+                for (int v : rule.head().vars()) {
+                    results.add(binding[v]);
+                }
+                return;
+            }
+            int index = plan[depth];
+            Literal literal = rule.body()[index];
+            if (literal instanceof Functor functor) {
+                int[] inputs = functor.inputs();
+                int[] args = new int[inputs.length];
+                for (int i = 0; i < inputs.length; ++i) {
+                    args[i] = binding[inputs[i]];
+                }
+                int value = functor.function().applyAsInt(args);
+                int output = functor.output();
+                if (value < 0) {
+                    return;
+                }
+                if (output < 0) {
+                    join(depth + 1);
+                } else if (bound[output]) {
+                    if (binding[output] == value) {
+                        join(depth + 1);
+                    }
+                } else {
+                    binding[output] = value;
+                    bound[output] = true;
+                    join(depth + 1);
+                    bound[output] = false;
+                }
+                return;
+            }
+            Atom atom = (Atom) literal;
+            Relation relation = atom.relation();
+            Relation.Version version = index < deltaIndex ? Relation.Version.OLD :
+                    index == deltaIndex ? Relation.Version.DELTA : Relation.Version.FULL;
+            int start = relation.getStart(version);
+            int end = relation.getEnd(version);
+            int[] vars = atom.vars();
+            int indexColumn = -1;
+            for (int i = 0; i < vars.length; ++i) {
+                if (bound[vars[i]]) {
+                    indexColumn = i;
+                    break;
+                }
+            }
+            if (indexColumn >= 0) {
+                Relation.IntList rows = relation.getRows(
+                        indexColumn, binding[vars[indexColumn]]);
+                if (rows != null) {
+                    for (int i = rows.lowerBound(start);
+                         i < rows.size() && rows.get(i) < end; ++i) {
+                        match(relation, vars, rows.get(i), depth);
+                    }
+                }
+            } else {
+                for (int row = start; row < end; ++row) {
+                    match(relation, vars, row, depth);
+                }
+            }
+        }
+
+        /**
+         * Matches the variables of an atom with given row, and continues
+         * the join if they match.
+         */
+        private void match(Relation relation, int[] vars, int row, int depth) {
+            int nNewlyBound = 0;
+            int[] newlyBound = new int[vars.length];
+            boolean matched = true;
+            for (int i = 0; i < vars.length; ++i) {
+                int v = vars[i];
+                int value = relation.get(row, i);
+                if (bound[v]) {
+                    if (binding[v] != value) {
+                        matched = false;
+                        break;
+                    }
+                } else {
+                    binding[v] = value;
+                    bound[v] = true;
+                    newlyBound[nNewlyBound++] = v;
+                }
+            }
+            if (matched) {
+                join(depth + 1);
+            }
+            for (int i = 0; i < nNewlyBound; ++i) {
+                bound[newlyBound[i]] = false;
+            }
+        }
+    }
+}
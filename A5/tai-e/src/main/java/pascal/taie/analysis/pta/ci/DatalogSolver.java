@@ -0,0 +1,481 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.ci.Datalog.Atom;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Context-insensitive pointer analysis on {@link Datalog}, as an
+ * alternative to the imperative {@link Solver}.
+ * <p>
+ * The statements of reachable methods are extracted to input relations,
+ * and the pointer analysis, including on-the-fly call graph construction,
+ * is expressed by the rules below. As in {@link Solver}, the statements of
+ * a method are only extracted when the method becomes reachable, i.e.,
+ * between the iterations of the engine.
+ * <pre>
+ * VarPointsTo(v, o)      :- New(v, o).
+ * VarPointsTo(to, o)     :- Assign(to, from), VarPointsTo(from, o).
+ * FieldPointsTo(b, f, o) :- Store(base, f, from), VarPointsTo(base, b), VarPointsTo(from, o).
+ * VarPointsTo(to, o)     :- Load(to, base, f), VarPointsTo(base, b), FieldPointsTo(b, f, o).
+ * ArrayPointsTo(a, o)    :- StoreArray(base, from), VarPointsTo(base, a), VarPointsTo(from, o),
+ *                           ObjType(a, at), ObjType(o, t), Storable(t, at).
+ * VarPointsTo(to, o)     :- LoadArray(to, base), VarPointsTo(base, a), ArrayPointsTo(a, o).
+ * StaticPointsTo(f, o)   :- StaticStore(f, from), VarPointsTo(from, o).
+ * VarPointsTo(to, o)     :- StaticLoad(to, f), StaticPointsTo(f, o).
+ * Dispatch(i, o, m)      :- InstanceInvoke(i, base), VarPointsTo(base, o), ObjType(o, t),
+ *                           Lookup(t, i, m).
+ * VarPointsTo(this, o)   :- Dispatch(i, o, m), ThisVar(m, this).
+ * CallEdge(i, m)         :- Dispatch(i, o, m).
+ * CallEdge(i, m)         :- StaticInvoke(i, m).
+ * Reachable(m)           :- CallEdge(i, m).
+ * Assign(param, arg)     :- CallEdge(i, m), ActualArg(i, k, arg), FormalParam(m, k, param).
+ * Assign(result, ret)    :- CallEdge(i, m), ActualResult(i, result), FormalReturn(m, ret).
+ * </pre>
+ * Dispatching and the type checks of array stores need the class
+ * hierarchy, which is not thread-safe. Thus, they are not computed by
+ * functors during the evaluation, but are requested by the rules below,
+ * and then resolved on the solver thread between iterations to the
+ * input relations Lookup and Storable, keyed by the types of objects
+ * (ObjType is extracted with New). Thus, rule evaluation only reads
+ * relations, and needs no lock when it runs on multiple threads.
+ * <pre>
+ * LookupRequest(t, i)    :- InstanceInvoke(i, base), VarPointsTo(base, o), ObjType(o, t).
+ * StorableRequest(t, at) :- StoreArray(base, from), VarPointsTo(base, a), VarPointsTo(from, o),
+ *                           ObjType(a, at), ObjType(o, t).
+ * </pre>
+ * The results are converted to the pointers of a {@link PointerFlowGraph}
+ * without edges, so that they are accessible via {@link CIPTAResult}.
+ */
+class DatalogSolver {
+
+    private final HeapModel heapModel;
+
+    private final int nThreads;
+
+    private final ObjIndexer objs = new ObjIndexer();
+
+    private final Domain<Var> vars = new Domain<>();
+
+    private final Domain<JField> fields = new Domain<>();
+
+    private final Domain<JMethod> methods = new Domain<>();
+
+    private final Domain<Invoke> invokes = new Domain<>();
+
+    private final Domain<Type> types = new Domain<>();
+
+    private TypeFilter typeFilter;
+
+    private Datalog datalog;
+
+    // input relations
+    private Relation newRel;
+    private Relation assign;
+    private Relation load;
+    private Relation store;
+    private Relation loadArray;
+    private Relation storeArray;
+    private Relation staticLoad;
+    private Relation staticStore;
+    private Relation staticInvoke;
+    private Relation instanceInvoke;
+    private Relation actualArg;
+    private Relation formalParam;
+    private Relation actualResult;
+    private Relation formalReturn;
+    private Relation thisVar;
+    private Relation objType;
+    private Relation lookup;
+    private Relation storable;
+
+    // derived relations
+    private Relation varPointsTo;
+    private Relation fieldPointsTo;
+    private Relation arrayPointsTo;
+    private Relation staticPointsTo;
+    private Relation dispatch;
+    private Relation callEdge;
+    private Relation reachable;
+    private Relation lookupRequest;
+    private Relation storableRequest;
+
+    private CIPTAResult result;
+
+    DatalogSolver(HeapModel heapModel, int nThreads) {
+        this.heapModel = heapModel;
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Runs pointer analysis algorithm.
+     */
+    void solve() {
+        initialize();
+        try {
+            int nExtracted = 0, nLookups = 0, nStorables = 0;
+            do {
+                // extracts the facts of new reachable methods
+                while (nExtracted < reachable.size()) {
+                    extractFacts(methods.getElement(reachable.get(nExtracted++, 0)));
+                }
+                // resolves the new requests
+                while (nLookups < lookupRequest.size()) {
+                    resolveLookup(lookupRequest.get(nLookups, 0),
+                            lookupRequest.get(nLookups++, 1));
+                }
+                while (nStorables < storableRequest.size()) {
+                    resolveStorable(storableRequest.get(nStorables, 0),
+                            storableRequest.get(nStorables++, 1));
+                }
+            } while (datalog.step());
+        } finally {
+            datalog.shutdown();
+        }
+        result = buildResult();
+    }
+
+    private void initialize() {
+        typeFilter = new TypeFilter(World.get().getTypeSystem());
+        datalog = new Datalog(nThreads);
+        newRel = datalog.newRelation("New", 2);
+        assign = datalog.newRelation("Assign", 2);
+        load = datalog.newRelation("Load", 3);
+        store = datalog.newRelation("Store", 3);
+        loadArray = datalog.newRelation("LoadArray", 2);
+        storeArray = datalog.newRelation("StoreArray", 2);
+        staticLoad = datalog.newRelation("StaticLoad", 2);
+        staticStore = datalog.newRelation("StaticStore", 2);
+        staticInvoke = datalog.newRelation("StaticInvoke", 2);
+        instanceInvoke = datalog.newRelation("InstanceInvoke", 2);
+        actualArg = datalog.newRelation("ActualArg", 3);
+        formalParam = datalog.newRelation("FormalParam", 3);
+        actualResult = datalog.newRelation("ActualResult", 2);
+        formalReturn = datalog.newRelation("FormalReturn", 2);
+        thisVar = datalog.newRelation("ThisVar", 2);
+        objType = datalog.newRelation("ObjType", 2);
+        lookup = datalog.newRelation("Lookup", 3);
+        storable = datalog.newRelation("Storable", 2);
+        varPointsTo = datalog.newRelation("VarPointsTo", 2);
+        fieldPointsTo = datalog.newRelation("FieldPointsTo", 3);
+        arrayPointsTo = datalog.newRelation("ArrayPointsTo", 2);
+        staticPointsTo = datalog.newRelation("StaticPointsTo", 2);
+        dispatch = datalog.newRelation("Dispatch", 3);
+        callEdge = datalog.newRelation("CallEdge", 2);
+        reachable = datalog.newRelation("Reachable", 1);
+        lookupRequest = datalog.newRelation("LookupRequest", 2);
+        storableRequest = datalog.newRelation("StorableRequest", 2);
+        addRules();
+        reachable.add(methods.getIndex(World.get().getMainMethod()));
+    }
+
+    private void addRules() {
+        // variables of the rules
+        final int v = 0, o = 1, to = 2, from = 3, base = 4, b = 5, f = 6,
+                i = 7, m = 8, k = 9, t = 10, bt = 11;
+        datalog.addRule(new Atom(varPointsTo, v, o),
+                new Atom(newRel, v, o));
+        datalog.addRule(new Atom(varPointsTo, to, o),
+                new Atom(assign, to, from),
+                new Atom(varPointsTo, from, o));
+        datalog.addRule(new Atom(fieldPointsTo, b, f, o),
+                new Atom(store, base, f, from),
+                new Atom(varPointsTo, base, b),
+                new Atom(varPointsTo, from, o));
+        datalog.addRule(new Atom(varPointsTo, to, o),
+                new Atom(load, to, base, f),
+                new Atom(varPointsTo, base, b),
+                new Atom(fieldPointsTo, b, f, o));
+        datalog.addRule(new Atom(arrayPointsTo, b, o),
+                new Atom(storeArray, base, from),
+                new Atom(varPointsTo, base, b),
+                new Atom(varPointsTo, from, o),
+                new Atom(objType, b, bt),
+                new Atom(objType, o, t),
+                new Atom(storable, t, bt));
+        datalog.addRule(new Atom(varPointsTo, to, o),
+                new Atom(loadArray, to, base),
+                new Atom(varPointsTo, base, b),
+                new Atom(arrayPointsTo, b, o));
+        datalog.addRule(new Atom(staticPointsTo, f, o),
+                new Atom(staticStore, f, from),
+                new Atom(varPointsTo, from, o));
+        datalog.addRule(new Atom(varPointsTo, to, o),
+                new Atom(staticLoad, to, f),
+                new Atom(staticPointsTo, f, o));
+        datalog.addRule(new Atom(dispatch, i, o, m),
+                new Atom(instanceInvoke, i, base),
+                new Atom(varPointsTo, base, o),
+                new Atom(objType, o, t),
+                new Atom(lookup, t, i, m));
+        datalog.addRule(new Atom(varPointsTo, v, o),
+                new Atom(dispatch, i, o, m),
+                new Atom(thisVar, m, v));
+        datalog.addRule(new Atom(callEdge, i, m),
+                new Atom(dispatch, i, o, m));
+        datalog.addRule(new Atom(callEdge, i, m),
+                new Atom(staticInvoke, i, m));
+        datalog.addRule(new Atom(reachable, m),
+                new Atom(callEdge, i, m));
+        datalog.addRule(new Atom(assign, to, from),
+                new Atom(callEdge, i, m),
+                new Atom(actualArg, i, k, from),
+                new Atom(formalParam, m, k, to));
+        datalog.addRule(new Atom(assign, to, from),
+                new Atom(callEdge, i, m),
+                new Atom(actualResult, i, to),
+                new Atom(formalReturn, m, from));
+        // requests of the input relations resolved between iterations
+        datalog.addRule(new Atom(lookupRequest, t, i),
+                new Atom(instanceInvoke, i, base),
+                new Atom(varPointsTo, base, o),
+                new Atom(objType, o, t));
+        datalog.addRule(new Atom(storableRequest, t, bt),
+                new Atom(storeArray, base, from),
+                new Atom(varPointsTo, base, b),
+                new Atom(varPointsTo, from, o),
+                new Atom(objType, b, bt),
+                new Atom(objType, o, t));
+    }
+
+    /**
+     * Extracts the facts of the statements, parameters and
+     * return variables of given method to the input relations.
+     */
+    private void extractFacts(JMethod method) {
+        IR ir = method.getIR();
+        int m = methods.getIndex(method);
+        if (ir.getThis() != null) {
+            thisVar.add(m, vars.getIndex(ir.getThis()));
+        }
+        for (int k = 0; k < ir.getParams().size(); ++k) {
+            formalParam.add(m, k, vars.getIndex(ir.getParam(k)));
+        }
+        for (Var ret : ir.getReturnVars()) {
+            formalReturn.add(m, vars.getIndex(ret));
+        }
+        for (Stmt stmt : ir.getStmts()) {
+            if (stmt instanceof New newStmt) {
+                Obj obj = heapModel.getObj(newStmt);
+                int o = objs.getIndex(obj);
+                newRel.add(vars.getIndex(newStmt.getLValue()), o);
+                objType.add(o, types.getIndex(obj.getType()));
+            } else if (stmt instanceof Copy copy) {
+                assign.add(vars.getIndex(copy.getLValue()),
+                        vars.getIndex(copy.getRValue()));
+            } else if (stmt instanceof LoadField loadField) {
+                int to = vars.getIndex(loadField.getLValue());
+                int f = fields.getIndex(loadField.getFieldRef().resolve());
+                if (loadField.getFieldAccess() instanceof InstanceFieldAccess access) {
+                    load.add(to, vars.getIndex(access.getBase()), f);
+                } else {
+                    staticLoad.add(to, f);
+                }
+            } else if (stmt instanceof StoreField storeField) {
+                int from = vars.getIndex(storeField.getRValue());
+                int f = fields.getIndex(storeField.getFieldRef().resolve());
+                if (storeField.getFieldAccess() instanceof InstanceFieldAccess access) {
+                    store.add(vars.getIndex(access.getBase()), f, from);
+                } else {
+                    staticStore.add(f, from);
+                }
+            } else if (stmt instanceof LoadArray loadArrayStmt) {
+                loadArray.add(vars.getIndex(loadArrayStmt.getLValue()),
+                        vars.getIndex(loadArrayStmt.getArrayAccess().getBase()));
+            } else if (stmt instanceof StoreArray storeArrayStmt) {
+                storeArray.add(vars.getIndex(storeArrayStmt.getArrayAccess().getBase()),
+                        vars.getIndex(storeArrayStmt.getRValue()));
+            } else if (stmt instanceof Invoke invoke) {
+                extractFacts(invoke);
+            }
+        }
+    }
+
+    private void extractFacts(Invoke invoke) {
+        int i = invokes.getIndex(invoke);
+        if (invoke.isStatic()) {
+            JMethod callee = CallGraphs.resolveCallee(null, invoke);
+            if (callee != null) {
+                staticInvoke.add(i, methods.getIndex(callee));
+            }
+        } else if (invoke.getInvokeExp() instanceof InvokeInstanceExp invokeExp) {
+            instanceInvoke.add(i, vars.getIndex(invokeExp.getBase()));
+        } else {
+            // dynamic invocations are not handled, as in Solver
+            return;
+        }
+        List<Var> args = invoke.getInvokeExp().getArgs();
+        for (int k = 0; k < args.size(); ++k) {
+            actualArg.add(i, k, vars.getIndex(args.get(k)));
+        }
+        if (invoke.getResult() != null) {
+            actualResult.add(i, vars.getIndex(invoke.getResult()));
+        }
+    }
+
+    /**
+     * Resolves the callee of invocation {@code i} on receiver objects
+     * of type {@code t} to relation Lookup, if the invocation
+     * can be resolved.
+     */
+    private void resolveLookup(int t, int i) {
+        JMethod callee = CallGraphs.resolveCallee(
+                types.getElement(t), invokes.getElement(i));
+        if (callee != null) {
+            lookup.add(t, i, methods.getIndex(callee));
+        }
+    }
+
+    /**
+     * Adds (t, at) to relation Storable if objects of type {@code t}
+     * can be stored into arrays of type {@code at}, as {@link Solver}
+     * filters the objects by type-filtered PFG edges.
+     */
+    private void resolveStorable(int t, int at) {
+        if (types.getElement(at) instanceof ArrayType arrayType &&
+                typeFilter.isAssignable(types.getElement(t), arrayType.elementType())) {
+            storable.add(t, at);
+        }
+    }
+
+    /**
+     * Converts the derived relations to the pointers of a PFG and
+     * to a call graph.
+     */
+    private CIPTAResult buildResult() {
+        PointerFlowGraph pfg = new PointerFlowGraph();
+        for (int row = 0; row < vars.size(); ++row) {
+            // variables in the extracted facts have pointers, as in Solver
+            pfg.getVarPtr(vars.getElement(row));
+        }
+        for (int row = 0; row < varPointsTo.size(); ++row) {
+            pfg.getVarPtr(vars.getElement(varPointsTo.get(row, 0)))
+                    .getPointsToSet()
+                    .addObject(objs.getObject(varPointsTo.get(row, 1)));
+        }
+        for (int row = 0; row < fieldPointsTo.size(); ++row) {
+            pfg.getInstanceField(objs.getObject(fieldPointsTo.get(row, 0)),
+                            fields.getElement(fieldPointsTo.get(row, 1)))
+                    .getPointsToSet()
+                    .addObject(objs.getObject(fieldPointsTo.get(row, 2)));
+        }
+        for (int row = 0; row < arrayPointsTo.size(); ++row) {
+            pfg.getArrayIndex(objs.getObject(arrayPointsTo.get(row, 0)))
+                    .getPointsToSet()
+                    .addObject(objs.getObject(arrayPointsTo.get(row, 1)));
+        }
+        for (int row = 0; row < staticPointsTo.size(); ++row) {
+            pfg.getStaticField(fields.getElement(staticPointsTo.get(row, 0)))
+                    .getPointsToSet()
+                    .addObject(objs.getObject(staticPointsTo.get(row, 1)));
+        }
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        callGraph.addEntryMethod(World.get().getMainMethod());
+        for (int row = 0; row < reachable.size(); ++row) {
+            callGraph.addReachableMethod(methods.getElement(reachable.get(row, 0)));
+        }
+        for (int row = 0; row < callEdge.size(); ++row) {
+            Invoke invoke = invokes.getElement(callEdge.get(row, 0));
+            callGraph.addEdge(new Edge<>(getCallKind(invoke), invoke,
+                    methods.getElement(callEdge.get(row, 1))));
+        }
+        return new CIPTAResult(pfg, callGraph);
+    }
+
+    static CallKind getCallKind(Invoke invoke) {
+        if (invoke.isStatic()) {
+            return CallKind.STATIC;
+        } else if (invoke.isSpecial()) {
+            return CallKind.SPECIAL;
+        } else if (invoke.isInterface()) {
+            return CallKind.INTERFACE;
+        } else if (invoke.isVirtual()) {
+            return CallKind.VIRTUAL;
+        } else if (invoke.isDynamic()) {
+            return CallKind.DYNAMIC;
+        } else {
+            return CallKind.OTHER;
+        }
+    }
+
+    CIPTAResult getResult() {
+        return result;
+    }
+
+    /**
+     * Numbers the elements of a domain of the relations.
+     */
+    private static class Domain<T> {
+
+        private final Map<T, Integer> indexes = Maps.newMap();
+
+        private final List<T> elements = new ArrayList<>();
+
+        int getIndex(T element) {
+            Integer index = indexes.get(element);
+            if (index == null) {
+                index = elements.size();
+                indexes.put(element, index);
+                elements.add(element);
+            }
+            return index;
+        }
+
+        T getElement(int index) {
+            return elements.get(index);
+        }
+
+        int size() {
+            return elements.size();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the abstract objects of a pointer analysis, so that
+ * points-to sets can be represented by bit sets of object numbers.
+ * Objects are numbered from 0 in the order they are first indexed.
+ */
+class ObjIndexer {
+
+    private final Map<Obj, Integer> indexes = Maps.newMap();
+
+    private final List<Obj> objects = new ArrayList<>();
+
+    /**
+     * @return the number of given object. If the object has not been
+     * numbered, then assigns the next number to it.
+     */
+    int getIndex(Obj obj) {
+        Integer index = indexes.get(obj);
+        if (index == null) {
+            index = objects.size();
+            indexes.put(obj, index);
+            objects.add(obj);
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of given object, or -1 if the object
+     * has not been numbered.
+     */
+    int indexOf(Obj obj) {
+        return indexes.getOrDefault(obj, -1);
+    }
+
+    /**
+     * @return the object of given number.
+     */
+    Obj getObject(int index) {
+        return objects.get(index);
+    }
+
+    /**
+     * @return the number of indexed objects.
+     */
+    int size() {
+        return objects.size();
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.FieldRef;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Context-insensitive pointer analysis on multiple threads, as an
+ * alternative to the sequential {@link Solver}.
+ * <p>
+ * Each propagation of objects to a pointer is a task of a work-stealing
+ * {@link ForkJoinPool}: a worker pushes the tasks it spawns to its own
+ * deque, and idle workers steal tasks from the deques of the others.
+ * The points-to sets and the PFG successors of the pointers are
+ * concurrent sets, and so are the reachable methods and the call edges,
+ * thus the workers update them without locks. A worker that adds objects
+ * to a points-to set propagates them along the edges it sees afterwards,
+ * and a worker that adds an edge propagates the objects it sees afterwards.
+ * As both sets are concurrent, at least one of the two workers sees
+ * the update of the other, so no object is missed along any edge.
+ * <p>
+ * The frontend (IR builder, class hierarchy and heap model) is not
+ * thread-safe, thus IR building, field and callee resolution and object
+ * allocation are serialized by {@link #frontendLock}, and the resolved
+ * fields and callees are cached in concurrent maps.
+ * <p>
+ * The solver merges neither cycles nor equivalent variables. As the fixed
+ * point of the propagation does not depend on the order of the tasks,
+ * the result equals the one of {@link Solver}. It is converted to the
+ * pointers of a {@link PointerFlowGraph} without edges, as in
+ * {@link DatalogSolver}.
+ */
+class ParallelSolver {
+
+    private static final Logger logger = LogManager.getLogger(ParallelSolver.class);
+
+    private final HeapModel heapModel;
+
+    private final int nThreads;
+
+    /**
+     * Lock of the accesses to the frontend.
+     */
+    private final Object frontendLock = new Object();
+
+    private final Map<Var, Node> varNodes = Maps.newConcurrentMap();
+
+    private final Map<JField, Node> staticFieldNodes = Maps.newConcurrentMap();
+
+    private final Map<Pair<Obj, JField>, Node> instanceFieldNodes = Maps.newConcurrentMap();
+
+    private final Map<Obj, Node> arrayIndexNodes = Maps.newConcurrentMap();
+
+    private final Set<JMethod> reachableMethods = Sets.newConcurrentSet();
+
+    /**
+     * Call edges, as pairs of call sites and callees.
+     */
+    private final Set<Pair<Invoke, JMethod>> callEdges = Sets.newConcurrentSet();
+
+    private final Map<JMethod, IR> irs = Maps.newConcurrentMap();
+
+    private final Map<FieldRef, JField> resolvedFields = Maps.newConcurrentMap();
+
+    /**
+     * Resolved callees, keyed by the types of receiver objects
+     * (null for static calls) and call sites.
+     */
+    private final Map<Pair<Type, Invoke>, JMethod> resolvedCallees = Maps.newConcurrentMap();
+
+    private TypeFilter typeFilter;
+
+    private ForkJoinPool pool;
+
+    /**
+     * Number of tasks that are scheduled and not finished.
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    /**
+     * Number of propagation tasks, for logging.
+     */
+    private final LongAdder nPropagations = new LongAdder();
+
+    private CIPTAResult result;
+
+    ParallelSolver(HeapModel heapModel, int nThreads) {
+        this.heapModel = heapModel;
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Runs pointer analysis algorithm.
+     */
+    void solve() {
+        typeFilter = new TypeFilter(World.get().getTypeSystem());
+        pool = new ForkJoinPool(nThreads);
+        try {
+            JMethod main = World.get().getMainMethod();
+            schedule(() -> addReachable(main));
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisException("Parallel pointer analysis is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new AnalysisException("Parallel pointer analysis failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        // completion of done orders the writes of all tasks
+        // before the reads of the result
+        logger.info("{} propagation tasks on {} threads",
+                nPropagations.sum(), nThreads);
+        result = buildResult();
+    }
+
+    /**
+     * Schedules an action as a task. Tasks scheduled by a worker are
+     * pushed to the deque of the worker.
+     */
+    private void schedule(Runnable action) {
+        active.incrementAndGet();
+        ForkJoinTask<?> task = ForkJoinTask.adapt(() -> {
+            try {
+                action.run();
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            } finally {
+                if (active.decrementAndGet() == 0) {
+                    done.complete(null);
+                }
+            }
+        });
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Schedules the propagation of objects to given node.
+     */
+    private void addEntry(Node node, Collection<Obj> objs) {
+        if (!objs.isEmpty()) {
+            nPropagations.increment();
+            schedule(() -> propagate(node, objs));
+        }
+    }
+
+    /**
+     * Adds objects to pt(node), and propagates the new ones to its
+     * PFG successors and processes them.
+     */
+    private void propagate(Node node, Collection<Obj> objs) {
+        List<Obj> delta = new ArrayList<>();
+        for (Obj obj : objs) {
+            if (node.pointsToSet.add(obj)) {
+                delta.add(obj);
+            }
+        }
+        if (!delta.isEmpty()) {
+            for (Succ succ : node.successors) {
+                addEntry(succ.target(), filter(delta, succ.filterType()));
+            }
+            if (node.var != null) {
+                processNewObjects(node.var, delta);
+            }
+        }
+    }
+
+    /**
+     * Adds an edge "source -> target" to the PFG, and propagates
+     * the objects of the source through it.
+     */
+    private void addPFGEdge(Node source, Node target) {
+        if (source == target) {
+            // self-loops (possibly filtered) propagate no new objects
+            return;
+        }
+        Type filterType = typeFilter.getFilterType(source.type, target.type);
+        if (source.successors.add(new Succ(target, filterType))) {
+            addEntry(target, filter(new ArrayList<>(source.pointsToSet), filterType));
+        }
+    }
+
+    /**
+     * @return the objects in given list that are assignable to given type,
+     * or the list itself if type is null.
+     */
+    private List<Obj> filter(List<Obj> objs, Type type) {
+        if (type == null) {
+            return objs;
+        }
+        List<Obj> result = new ArrayList<>();
+        for (Obj obj : objs) {
+            if (typeFilter.isAssignable(obj.getType(), type)) {
+                result.add(obj);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes new reachable method.
+     */
+    private void addReachable(JMethod method) {
+        if (!reachableMethods.add(method)) {
+            return;
+        }
+        for (Stmt stmt : getIR(method).getStmts()) {
+            if (stmt instanceof New newStmt) {
+                Obj obj;
+                synchronized (frontendLock) {
+                    obj = heapModel.getObj(newStmt);
+                }
+                addEntry(getVarNode(newStmt.getLValue()), List.of(obj));
+            } else if (stmt instanceof Copy copy) {
+                addPFGEdge(getVarNode(copy.getRValue()), getVarNode(copy.getLValue()));
+            } else if (stmt instanceof LoadField load && load.isStatic()) {
+                addPFGEdge(getStaticFieldNode(resolveField(load.getFieldRef())),
+                        getVarNode(load.getLValue()));
+            } else if (stmt instanceof StoreField store && store.isStatic()) {
+                addPFGEdge(getVarNode(store.getRValue()),
+                        getStaticFieldNode(resolveField(store.getFieldRef())));
+            } else if (stmt instanceof Invoke invoke && invoke.isStatic()) {
+                JMethod callee = resolveCallee(null, invoke);
+                if (callEdges.add(new Pair<>(invoke, callee))) {
+                    processCallEdge(invoke, callee);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the field/array accesses and instance calls on given
+     * variable, for the objects newly pointed to by the variable.
+     */
+    private void processNewObjects(Var var, List<Obj> objs) {
+        for (Obj obj : objs) {
+            for (StoreField store : var.getStoreFields()) {
+                addPFGEdge(getVarNode(store.getRValue()),
+                        getInstanceFieldNode(obj, resolveField(store.getFieldRef())));
+            }
+            for (LoadField load : var.getLoadFields()) {
+                addPFGEdge(getInstanceFieldNode(obj, resolveField(load.getFieldRef())),
+                        getVarNode(load.getLValue()));
+            }
+            for (StoreArray store : var.getStoreArrays()) {
+                addPFGEdge(getVarNode(store.getRValue()), getArrayIndexNode(obj));
+            }
+            for (LoadArray load : var.getLoadArrays()) {
+                addPFGEdge(getArrayIndexNode(obj), getVarNode(load.getLValue()));
+            }
+            for (Invoke callSite : var.getInvokes()) {
+                JMethod callee = resolveCallee(obj, callSite);
+                addEntry(getVarNode(getIR(callee).getThis()), List.of(obj));
+                if (callEdges.add(new Pair<>(callSite, callee))) {
+                    processCallEdge(callSite, callee);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes a new call edge: makes the callee reachable, and adds
+     * the PFG edges of arguments and return values.
+     */
+    private void processCallEdge(Invoke callSite, JMethod callee) {
+        addReachable(callee);
+        IR ir = getIR(callee);
+        for (int i = 0; i < callee.getParamCount(); ++i) {
+            addPFGEdge(getVarNode(callSite.getInvokeExp().getArg(i)),
+                    getVarNode(ir.getParam(i)));
+        }
+        // note there may be no result in the callSite
+        Var result = callSite.getResult();
+        if (result != null) {
+            for (Var returnVar : ir.getReturnVars()) {
+                addPFGEdge(getVarNode(returnVar), getVarNode(result));
+            }
+        }
+    }
+
+    private IR getIR(JMethod method) {
+        IR ir = irs.get(method);
+        if (ir == null) {
+            synchronized (frontendLock) {
+                ir = method.getIR();
+            }
+            irs.put(method, ir);
+        }
+        return ir;
+    }
+
+    private JField resolveField(FieldRef fieldRef) {
+        JField field = resolvedFields.get(fieldRef);
+        if (field == null) {
+            synchronized (frontendLock) {
+                field = fieldRef.resolve();
+            }
+            resolvedFields.put(fieldRef, field);
+        }
+        return field;
+    }
+
+    /**
+     * Resolves the callee of a call site with the receiver object.
+     *
+     * @param recv     the receiver object of the method call. If the callSite
+     *                 is static, this parameter is ignored (i.e., can be null).
+     * @param callSite the call site to be resolved.
+     * @return the resolved callee.
+     */
+    private JMethod resolveCallee(Obj recv, Invoke callSite) {
+        Type type = recv != null ? recv.getType() : null;
+        Pair<Type, Invoke> key = new Pair<>(type, callSite);
+        JMethod callee = resolvedCallees.get(key);
+        if (callee == null) {
+            synchronized (frontendLock) {
+                callee = CallGraphs.resolveCallee(type, callSite);
+            }
+            resolvedCallees.put(key, callee);
+        }
+        return callee;
+    }
+
+    private Node getVarNode(Var var) {
+        return varNodes.computeIfAbsent(var, v -> new Node(v, v.getType()));
+    }
+
+    private Node getStaticFieldNode(JField field) {
+        return staticFieldNodes.computeIfAbsent(field,
+                f -> new Node(null, f.getType()));
+    }
+
+    private Node getInstanceFieldNode(Obj base, JField field) {
+        return instanceFieldNodes.computeIfAbsent(new Pair<>(base, field),
+                p -> new Node(null, field.getType()));
+    }
+
+    private Node getArrayIndexNode(Obj array) {
+        return arrayIndexNodes.computeIfAbsent(array,
+                a -> new Node(null, ((ArrayType) a.getType()).elementType()));
+    }
+
+    /**
+     * Converts the nodes to the pointers of a PFG, and the reachable
+     * methods and call edges to a call graph.
+     */
+    private CIPTAResult buildResult() {
+        PointerFlowGraph pfg = new PointerFlowGraph();
+        varNodes.forEach((var, node) -> addObjects(
+                pfg.getVarPtr(var), node));
+        staticFieldNodes.forEach((field, node) -> addObjects(
+                pfg.getStaticField(field), node));
+        instanceFieldNodes.forEach((pair, node) -> addObjects(
+                pfg.getInstanceField(pair.first(), pair.second()), node));
+        arrayIndexNodes.forEach((array, node) -> addObjects(
+                pfg.getArrayIndex(array), node));
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        callGraph.addEntryMethod(World.get().getMainMethod());
+        reachableMethods.forEach(callGraph::addReachableMethod);
+        callEdges.forEach(edge -> callGraph.addEdge(new Edge<>(
+                DatalogSolver.getCallKind(edge.first()), edge.first(), edge.second())));
+        return new CIPTAResult(pfg, callGraph);
+    }
+
+    private static void addObjects(Pointer pointer, Node node) {
+        node.pointsToSet.forEach(pointer.getPointsToSet()::addObject);
+    }
+
+    CIPTAResult getResult() {
+        return result;
+    }
+
+    /**
+     * Pointer of the concurrent PFG.
+     */
+    private static class Node {
+
+        /**
+         * Variable of this node, or null if this node is a field
+         * or an array index.
+         */
+        private final Var var;
+
+        private final Type type;
+
+        private final Set<Obj> pointsToSet = Sets.newConcurrentSet();
+
+        private final Set<Succ> successors = Sets.newConcurrentSet();
+
+        private Node(Var var, Type type) {
+            this.var = var;
+            this.type = type;
+        }
+    }
+
+    /**
+     * PFG edge to {@code target}, through which only the objects
+     * assignable to {@code filterType} flow, or all objects
+     * if {@code filterType} is null.
+     */
+    private record Succ(Node target, Type filterType) {
+    }
+}
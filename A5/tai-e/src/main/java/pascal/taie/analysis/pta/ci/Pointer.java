@@ -22,6 +22,8 @@
 
 package pascal.taie.analysis.pta.ci;
 
+import pascal.taie.language.type.Type;
+
 /**
  * Represents pointers in pointer analysis and nodes in pointer flow graph.
  *
@@ -29,9 +31,30 @@ package pascal.taie.analysis.pta.ci;
  */
 abstract class Pointer {
 
-    private final PointsToSet pointsToSet = new PointsToSet();
+    private PointsToSet pointsToSet;
+
+    Pointer(ObjIndexer indexer) {
+        this(new PointsToSet(indexer));
+    }
+
+    Pointer(PointsToSet pointsToSet) {
+        this.pointsToSet = pointsToSet;
+    }
+
+    /**
+     * @return the declared type of this pointer.
+     */
+    abstract Type getType();
 
     PointsToSet getPointsToSet() {
         return pointsToSet;
     }
+
+    /**
+     * Sets the points-to set of this pointer. Pointers in the same cycle
+     * of PFG share one points-to set after the cycle is collapsed.
+     */
+    void setPointsToSet(PointsToSet pointsToSet) {
+        this.pointsToSet = pointsToSet;
+    }
 }
@@ -20,36 +20,52 @@
  * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
  */
 
+
 package pascal.taie.analysis.pta.ci;
 
 import pascal.taie.analysis.pta.core.heap.Obj;
-import pascal.taie.util.collection.Sets;
 
-import java.util.Collections;
+import java.util.AbstractSet;
 import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents of points-to sets.
+ * <p>
+ * Objects are represented by their numbers given by {@link ObjIndexer},
+ * and stored in a {@link SparseBitSet}, so that union and difference
+ * of points-to sets are computed word by word.
  */
 class PointsToSet implements Iterable<Obj> {
 
-    private final Set<Obj> set = Sets.newHybridSet();
+    private final ObjIndexer indexer;
+
+    private final SparseBitSet set;
 
     /**
      * Constructs an empty points-to set.
      */
-    PointsToSet() {
+    PointsToSet(ObjIndexer indexer) {
+        this(indexer, new SparseBitSet());
     }
 
     /**
      * Constructs a points-to set containing one object.
      */
-    PointsToSet(Obj obj) {
+    PointsToSet(ObjIndexer indexer, Obj obj) {
+        this(indexer);
         addObject(obj);
     }
 
+    private PointsToSet(ObjIndexer indexer, SparseBitSet set) {
+        this.indexer = indexer;
+        this.set = set;
+    }
+
     /**
      * Adds an object to this set.
      *
@@ -57,14 +73,66 @@ class PointsToSet implements Iterable<Obj> {
      * otherwise false.
      */
     boolean addObject(Obj obj) {
-        return set.add(obj);
+        return set.set(indexer.getIndex(obj));
+    }
+
+    /**
+     * Adds all objects in given set to this set.
+     *
+     * @return true if this points-to set changed as a result of the call,
+     * otherwise false.
+     */
+    boolean addAll(PointsToSet pts) {
+        return set.setAll(pts.set);
+    }
+
+    /**
+     * Adds all objects in given set to this set.
+     *
+     * @return a new set of the objects that are in given set
+     * but were not in this set.
+     */
+    PointsToSet addAllDiff(PointsToSet pts) {
+        return new PointsToSet(indexer, set.setAllDiff(pts.set));
+    }
+
+    /**
+     * @return a new points-to set containing the same objects as this set.
+     */
+    PointsToSet copy() {
+        PointsToSet copy = new PointsToSet(indexer);
+        copy.addAll(this);
+        return copy;
+    }
+
+    /**
+     * @return a new points-to set of the objects in this set
+     * that satisfy the given predicate.
+     */
+    PointsToSet filter(Predicate<Obj> predicate) {
+        PointsToSet result = new PointsToSet(indexer);
+        for (Obj obj : this) {
+            if (predicate.test(obj)) {
+                result.addObject(obj);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if this set and given set contain the same objects,
+     * otherwise false.
+     */
+    boolean hasSameObjects(PointsToSet pts) {
+        return set.equals(pts.set);
     }
 
     /**
      * @return true if this points-to set contains the given object, otherwise false.
      */
     boolean contains(Obj obj) {
-        return set.contains(obj);
+        int index = indexer.indexOf(obj);
+        return index >= 0 && set.get(index);
     }
 
     /**
@@ -78,30 +146,56 @@ class PointsToSet implements Iterable<Obj> {
      * @return the number of objects in this set.
      */
     int size() {
-        return set.size();
+        return set.cardinality();
     }
 
     /**
      * @return all objects in this set.
      */
     Stream<Obj> objects() {
-        return set.stream();
+        return StreamSupport.stream(spliterator(), false);
     }
 
     /**
      * @return all objects in this set.
      */
     Set<Obj> getObjects() {
-        return Collections.unmodifiableSet(set);
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Obj obj && PointsToSet.this.contains(obj);
+            }
+
+            @Override
+            public Iterator<Obj> iterator() {
+                return PointsToSet.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return PointsToSet.this.size();
+            }
+        };
     }
 
     @Override
     public Iterator<Obj> iterator() {
-        return set.iterator();
+        PrimitiveIterator.OfInt it = set.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Obj next() {
+                return indexer.getObject(it.nextInt());
+            }
+        };
     }
 
     @Override
     public String toString() {
-        return set.toString();
+        return getObjects().toString();
     }
 }
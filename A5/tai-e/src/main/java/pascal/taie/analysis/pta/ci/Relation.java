@@ -0,0 +1,337 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import java.util.Arrays;
+
+/**
+ * Relation of {@link Datalog}, i.e., a set of tuples of ints.
+ * <p>
+ * The tuples are stored column by column in primitive arrays, in the
+ * order they are added. Tuples are deduplicated by an open-addressing
+ * hash table of row numbers, and each column has an open-addressing
+ * index from values to the rows holding them, so no tuple or value is
+ * boxed. For semi-naive evaluation, {@link #advance()} splits the rows
+ * into three consecutive ranges: the old rows known before the last
+ * iteration, the delta rows derived in the last iteration, and the new
+ * rows derived in the current iteration.
+ * <p>
+ * A relation is not thread-safe for writes, but its rows and indexes
+ * may be read by multiple threads while no tuple is added.
+ */
+class Relation {
+
+    /**
+     * Ranges of the rows of a relation visible to rule evaluation.
+     */
+    enum Version {
+
+        /**
+         * Rows known before the last iteration.
+         */
+        OLD,
+
+        /**
+         * Rows derived in the last iteration.
+         */
+        DELTA,
+
+        /**
+         * Both old and delta rows.
+         */
+        FULL,
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String name;
+
+    private final int arity;
+
+    private int[][] columns;
+
+    private int size = 0;
+
+    /**
+     * Start (inclusive) of the delta rows.
+     */
+    private int deltaStart = 0;
+
+    /**
+     * End (exclusive) of the delta rows.
+     */
+    private int deltaEnd = 0;
+
+    /**
+     * Hash table of the rows for deduplication, which holds
+     * row + 1 for each row, and 0 for empty slots.
+     */
+    private int[] rowTable = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Index of each column, from values to the rows holding them.
+     */
+    private final ColumnIndex[] indexes;
+
+    Relation(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+        this.columns = new int[arity][INITIAL_CAPACITY];
+        this.indexes = new ColumnIndex[arity];
+        for (int i = 0; i < arity; ++i) {
+            indexes[i] = new ColumnIndex();
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getArity() {
+        return arity;
+    }
+
+    /**
+     * Adds a tuple to this relation as a new row.
+     *
+     * @return true if this relation changed as a result of the call,
+     * otherwise false.
+     */
+    boolean add(int... values) {
+        int mask = rowTable.length - 1;
+        int slot = hash(values) & mask;
+        for (int r; (r = rowTable[slot]) != 0; slot = (slot + 1) & mask) {
+            if (rowEquals(r - 1, values)) {
+                return false;
+            }
+        }
+        if (size == columns[0].length) {
+            for (int i = 0; i < arity; ++i) {
+                columns[i] = Arrays.copyOf(columns[i], size * 2);
+            }
+        }
+        for (int i = 0; i < arity; ++i) {
+            columns[i][size] = values[i];
+            indexes[i].add(values[i], size);
+        }
+        rowTable[slot] = ++size;
+        if (size * 2 > rowTable.length) {
+            rehashRows();
+        }
+        return true;
+    }
+
+    private static int hash(int[] values) {
+        int h = 1;
+        for (int value : values) {
+            h = 31 * h + value;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean rowEquals(int row, int[] values) {
+        for (int i = 0; i < arity; ++i) {
+            if (columns[i][row] != values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehashRows() {
+        rowTable = new int[rowTable.length * 2];
+        int mask = rowTable.length - 1;
+        int[] values = new int[arity];
+        for (int row = 0; row < size; ++row) {
+            for (int i = 0; i < arity; ++i) {
+                values[i] = columns[i][row];
+            }
+            int slot = hash(values) & mask;
+            while (rowTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rowTable[slot] = row + 1;
+        }
+    }
+
+    /**
+     * Starts a new iteration: the delta rows become old,
+     * and the new rows become delta.
+     *
+     * @return true if there are delta rows, otherwise false.
+     */
+    boolean advance() {
+        deltaStart = deltaEnd;
+        deltaEnd = size;
+        return deltaStart < deltaEnd;
+    }
+
+    /**
+     * @return the start (inclusive) of the rows of given version.
+     */
+    int getStart(Version version) {
+        return version == Version.DELTA ? deltaStart : 0;
+    }
+
+    /**
+     * @return the end (exclusive) of the rows of given version.
+     */
+    int getEnd(Version version) {
+        return version == Version.OLD ? deltaStart : deltaEnd;
+    }
+
+    /**
+     * @return true if there are delta rows, otherwise false.
+     */
+    boolean hasDelta() {
+        return deltaStart < deltaEnd;
+    }
+
+    /**
+     * @return the number of rows, i.e., tuples, of this relation.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the value of given row and column.
+     */
+    int get(int row, int column) {
+        return columns[column][row];
+    }
+
+    /**
+     * @return the rows whose value of given column is given value,
+     * in ascending order, or null if there are no such rows.
+     */
+    IntList getRows(int column, int value) {
+        return indexes[column].get(value);
+    }
+
+    @Override
+    public String toString() {
+        return name + "/" + arity + "[" + size + "]";
+    }
+
+    /**
+     * Open-addressing hash map from the values of a column to
+     * the rows holding them.
+     */
+    private static class ColumnIndex {
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+
+        private IntList[] rows = new IntList[INITIAL_CAPACITY];
+
+        private int size = 0;
+
+        private void add(int value, int row) {
+            int slot = findSlot(keys, rows, value);
+            IntList list = rows[slot];
+            if (list == null) {
+                list = new IntList();
+                keys[slot] = value;
+                rows[slot] = list;
+                if (++size * 2 > keys.length) {
+                    rehash();
+                }
+            }
+            list.add(row);
+        }
+
+        private IntList get(int value) {
+            return rows[findSlot(keys, rows, value)];
+        }
+
+        /**
+         * @return the slot of given value, or the empty slot
+         * where the value should be put.
+         */
+        private static int findSlot(int[] keys, IntList[] rows, int value) {
+            int mask = keys.length - 1;
+            int slot = (value ^ (value >>> 16)) * 0x9E3779B9 & mask;
+            while (rows[slot] != null && keys[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            int[] newKeys = new int[keys.length * 2];
+            IntList[] newRows = new IntList[newKeys.length];
+            for (int i = 0; i < keys.length; ++i) {
+                if (rows[i] != null) {
+                    int slot = findSlot(newKeys, newRows, keys[i]);
+                    newKeys[slot] = keys[i];
+                    newRows[slot] = rows[i];
+                }
+            }
+            keys = newKeys;
+            rows = newRows;
+        }
+    }
+
+    /**
+     * Growable list of ints.
+     */
+    static class IntList {
+
+        private int[] elements = new int[4];
+
+        private int size = 0;
+
+        void add(int element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+        }
+
+        int get(int i) {
+            return elements[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return the index of the first element that is not less than
+         * given key, assuming the elements are in ascending order.
+         */
+        int lowerBound(int key) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (elements[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -38,19 +38,39 @@ import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
-import pascal.taie.util.AnalysisException;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
 import pascal.taie.util.collection.Sets;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
 
+    /**
+     * Minimum number of new PFG edges to recompute topological ranks.
+     */
+    private static final int TOPO_RANK_THRESHOLD = 64;
+
     private final HeapModel heapModel;
 
+    /**
+     * Whether to propagate points-to sets in waves.
+     */
+    private final boolean waves;
+
+    /**
+     * Policy of the order in which the work-list polls pointers.
+     */
+    private final WorkList.Policy policy;
+
     private DefaultCallGraph callGraph;
 
     private PointerFlowGraph pointerFlowGraph;
@@ -61,8 +81,37 @@ class Solver {
 
     private ClassHierarchy hierarchy;
 
+    private TypeFilter typeFilter;
+
+    /**
+     * PFG edges that have been checked for cycles.
+     */
+    private Set<Pair<Pointer, Pointer>> checkedEdges;
+
+    /**
+     * Pointers from which cycle detection is pending.
+     */
+    private List<Pointer> cycleCandidates;
+
+    /**
+     * Topological ranks of the representatives in the PFG,
+     * used by {@link WorkList.Policy#TOPO}.
+     */
+    private Map<Pointer, Integer> topoRanks;
+
+    /**
+     * Number of PFG edges added since {@link #topoRanks} was computed.
+     */
+    private int newEdges;
+
     Solver(HeapModel heapModel) {
+        this(heapModel, false, WorkList.Policy.FIFO);
+    }
+
+    Solver(HeapModel heapModel, boolean waves, WorkList.Policy policy) {
         this.heapModel = heapModel;
+        this.waves = waves;
+        this.policy = policy;
     }
 
     /**
@@ -71,17 +120,24 @@ class Solver {
     void solve() {
         initialize();
         analyze();
+        logger.info("{} work-list entries polled ({} policy)",
+                getNumberOfPolledEntries(), policy);
     }
 
     /**
      * Initializes pointer analysis.
      */
     private void initialize() {
-        workList = new WorkList();
+        topoRanks = Maps.newMap();
+        workList = new WorkList(policy, pointer -> topoRanks.getOrDefault(
+                pointerFlowGraph.getRepresentative(pointer), Integer.MAX_VALUE));
         pointerFlowGraph = new PointerFlowGraph();
         callGraph = new DefaultCallGraph();
         stmtProcessor = new StmtProcessor();
         hierarchy = World.get().getClassHierarchy();
+        typeFilter = new TypeFilter(World.get().getTypeSystem());
+        checkedEdges = Sets.newSet();
+        cycleCandidates = new ArrayList<>();
         // initialize main method
         JMethod main = World.get().getMainMethod();
         callGraph.addEntryMethod(main);
@@ -94,6 +150,7 @@ class Solver {
     private void addReachable(JMethod method) {
         // TODO - finish me
         if (callGraph.addReachableMethod(method)) {
+            mergeEquivalentVars(method);
             for (Stmt stmt : method.getIR().getStmts()) {
                 // Statements below are required to deal with here:
                 //      x = new T()
@@ -113,6 +170,22 @@ class Solver {
         }
     }
 
+    /**
+     * Merges the Var nodes of pointer-equivalent variables in given method
+     * before its statements are processed, so that the equivalent
+     * variables share one node and one points-to set in the PFG.
+     *
+     * @see VarEquivalence
+     */
+    private void mergeEquivalentVars(JMethod method) {
+        VarEquivalence.compute(method.getIR()).forEach((var, repVar) -> {
+            VarPtr varPtr = pointerFlowGraph.addEquivalentVar(var, repVar);
+            if (varPtr != null && !varPtr.getPointsToSet().isEmpty()) {
+                processNewObjects(varPtr, varPtr.getPointsToSet());
+            }
+        });
+    }
+
     /**
      * Processes statements in new reachable methods.
      */
@@ -123,7 +196,8 @@ class Solver {
         @Override
         public Void visit(New stmt) {
             VarPtr varPtr = pointerFlowGraph.getVarPtr(stmt.getLValue());
-            PointsToSet flowedInObjs = new PointsToSet(heapModel.getObj(stmt));
+            PointsToSet flowedInObjs = new PointsToSet(
+                    pointerFlowGraph.getObjIndexer(), heapModel.getObj(stmt));
             workList.addEntry(varPtr, flowedInObjs);
             return StmtVisitor.super.visit(stmt);
         }
@@ -194,74 +268,316 @@ class Solver {
      */
     private void addPFGEdge(Pointer source, Pointer target) {
         // TODO - finish me
-        if (pointerFlowGraph.addEdge(source, target)) {
-            PointsToSet setFromSource = source.getPointsToSet();
+        addPFGEdge(source, target,
+                typeFilter.getFilterType(source.getType(), target.getType()));
+    }
+
+    /**
+     * Adds an edge "source -> target" to the PFG, through which only
+     * the objects assignable to {@code filterType} flow.
+     *
+     * @param filterType the type filter of the edge, or null if all
+     *                   objects flow through the edge.
+     */
+    private void addPFGEdge(Pointer source, Pointer target, Type filterType) {
+        source = pointerFlowGraph.getRepresentative(source);
+        target = pointerFlowGraph.getRepresentative(target);
+        if (source == target) {
+            // self-loops (possibly filtered) propagate no new objects
+            return;
+        }
+        boolean added = filterType == null ?
+                pointerFlowGraph.addEdge(source, target) :
+                pointerFlowGraph.addFilteredEdge(source, target, filterType);
+        if (added) {
+            ++newEdges;
+            PointsToSet setFromSource = filter(source.getPointsToSet(), filterType);
             if (!setFromSource.isEmpty()) {
                 workList.addEntry(target, setFromSource);
             }
         }
     }
 
+    /**
+     * @return the objects in given set that are assignable to given type,
+     * or the set itself if type is null.
+     */
+    private PointsToSet filter(PointsToSet pts, Type type) {
+        return type == null ? pts :
+                pts.filter(obj -> typeFilter.isAssignable(obj.getType(), type));
+    }
+
     /**
      * Processes work-list entries until the work-list is empty.
      */
     private void analyze() {
         // TODO - finish me
+        if (waves) {
+            analyzeInWaves();
+            return;
+        }
         while (!workList.isEmpty()) {
+            if (policy == WorkList.Policy.TOPO) {
+                updateTopoRanks();
+            }
             WorkList.Entry entry = workList.pollEntry();
-            Pointer pointer = entry.pointer();
+            Pointer pointer = pointerFlowGraph.getRepresentative(entry.pointer());
             PointsToSet pts = entry.pointsToSet();
             PointsToSet delta = propagate(pointer, pts);
-            if (pointer instanceof VarPtr varPtr) {
-                Var var = varPtr.getVar();
-                for (Obj obj : delta) {
-                    for (StoreField store : var.getStoreFields()) {
-                        JField instanceField = store.getFieldRef().resolve();
-                        InstanceField targetPtr = pointerFlowGraph.getInstanceField(obj, instanceField);
-                        VarPtr sourcePtr = pointerFlowGraph.getVarPtr(store.getRValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    for (LoadField load : var.getLoadFields()) {
-                        JField instanceField = load.getFieldRef().resolve();
-                        InstanceField sourcePtr = pointerFlowGraph.getInstanceField(obj, instanceField);
-                        VarPtr targetPtr = pointerFlowGraph.getVarPtr(load.getLValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    for (StoreArray store : var.getStoreArrays()) {
-                        ArrayIndex targetPtr = pointerFlowGraph.getArrayIndex(obj);
-                        VarPtr sourcePtr = pointerFlowGraph.getVarPtr(store.getRValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    for (LoadArray load : var.getLoadArrays()) {
-                        ArrayIndex sourcePtr = pointerFlowGraph.getArrayIndex(obj);
-                        VarPtr targetPtr = pointerFlowGraph.getVarPtr(load.getLValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    processCall(var, obj);
+            if (!delta.isEmpty()) {
+                processNewObjects(pointer, delta);
+                for (Pointer merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    processNewObjects(merged, delta);
                 }
             }
+            collapseCycles();
+        }
+    }
+
+    /**
+     * Recomputes the topological ranks of the PFG reachable from the
+     * pointers in the work-list, once the number of edges added since
+     * the last computation exceeds the number of ranked pointers,
+     * so that the cost of ranking is amortized over the edges.
+     */
+    private void updateTopoRanks() {
+        if (newEdges > Math.max(topoRanks.size(), TOPO_RANK_THRESHOLD)) {
+            newEdges = 0;
+            topoRanks.clear();
+            List<Pointer> order = pointerFlowGraph.getTopologicalOrder(
+                    workList.getPointers());
+            for (int i = 0; i < order.size(); ++i) {
+                topoRanks.put(order.get(i), i);
+            }
+            workList.reorder();
+        }
+    }
+
+    /**
+     * Processes work-list entries in waves until the work-list is empty.
+     * <p>
+     * Each wave drains the work-list, coalesces the entries by the
+     * representatives of their pointers, and computes a topological order
+     * of the part of the PFG reachable from them. The points-to sets are
+     * then propagated along the order, so that each pointer is visited
+     * at most once per wave, after its predecessors, with the objects from
+     * all of them at once. Objects propagated along the back edges of the
+     * order are left to the next wave. Afterwards, the new objects of the
+     * visited pointers are processed in a batch, which adds the PFG edges
+     * of field/array accesses and the call edges, and cycles are collapsed.
+     */
+    private void analyzeInWaves() {
+        while (!workList.isEmpty()) {
+            Map<Pointer, PointsToSet> pending = new LinkedHashMap<>();
+            WorkList.Entry entry;
+            while ((entry = workList.pollEntry()) != null) {
+                addPending(pending, pointerFlowGraph.getRepresentative(entry.pointer()),
+                        entry.pointsToSet());
+            }
+            List<Pointer> order = pointerFlowGraph.getTopologicalOrder(pending.keySet());
+            Map<Pointer, Integer> ranks = Maps.newMap(order.size());
+            for (int i = 0; i < order.size(); ++i) {
+                ranks.put(order.get(i), i);
+            }
+            // propagation phase
+            List<Pair<Pointer, PointsToSet>> deltas = new ArrayList<>();
+            for (Pointer pointer : order) {
+                PointsToSet pts = pending.remove(pointer);
+                if (pts == null) {
+                    continue;
+                }
+                PointsToSet delta = pointer.getPointsToSet().addAllDiff(pts);
+                if (!delta.isEmpty()) {
+                    deltas.add(new Pair<>(pointer, delta));
+                    int rank = ranks.get(pointer);
+                    propagateDelta(pointer, delta, (succ, objs) -> {
+                        if (ranks.getOrDefault(succ, -1) > rank) {
+                            addPending(pending, succ, objs);
+                        } else {
+                            workList.addEntry(succ, objs);
+                        }
+                    });
+                }
+            }
+            // batch phase
+            for (Pair<Pointer, PointsToSet> pair : deltas) {
+                Pointer pointer = pair.first();
+                PointsToSet delta = pair.second();
+                processNewObjects(pointer, delta);
+                for (Pointer merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    processNewObjects(merged, delta);
+                }
+            }
+            collapseCycles();
+        }
+    }
+
+    /**
+     * Adds objects to the pending points-to set of given pointer.
+     */
+    private static void addPending(Map<Pointer, PointsToSet> pending,
+                                   Pointer pointer, PointsToSet pts) {
+        PointsToSet set = pending.get(pointer);
+        if (set == null) {
+            pending.put(pointer, pts.copy());
+        } else {
+            set.addAll(pts);
+        }
+    }
+
+    /**
+     * Processes the field/array accesses and instance calls on the variable
+     * of given pointer, for the objects newly pointed to by the variable.
+     */
+    private void processNewObjects(Pointer pointer, PointsToSet objs) {
+        if (pointer instanceof VarPtr varPtr) {
+            Var var = varPtr.getVar();
+            for (Obj obj : objs) {
+                for (StoreField store : var.getStoreFields()) {
+                    JField instanceField = store.getFieldRef().resolve();
+                    InstanceField targetPtr = pointerFlowGraph.getInstanceField(obj, instanceField);
+                    VarPtr sourcePtr = pointerFlowGraph.getVarPtr(store.getRValue());
+                    addPFGEdge(sourcePtr, targetPtr);
+                }
+                for (LoadField load : var.getLoadFields()) {
+                    JField instanceField = load.getFieldRef().resolve();
+                    InstanceField sourcePtr = pointerFlowGraph.getInstanceField(obj, instanceField);
+                    VarPtr targetPtr = pointerFlowGraph.getVarPtr(load.getLValue());
+                    addPFGEdge(sourcePtr, targetPtr);
+                }
+                for (StoreArray store : var.getStoreArrays()) {
+                    ArrayIndex targetPtr = pointerFlowGraph.getArrayIndex(obj);
+                    VarPtr sourcePtr = pointerFlowGraph.getVarPtr(store.getRValue());
+                    addPFGEdge(sourcePtr, targetPtr);
+                }
+                for (LoadArray load : var.getLoadArrays()) {
+                    ArrayIndex sourcePtr = pointerFlowGraph.getArrayIndex(obj);
+                    VarPtr targetPtr = pointerFlowGraph.getVarPtr(load.getLValue());
+                    addPFGEdge(sourcePtr, targetPtr);
+                }
+                processCall(var, obj);
+            }
         }
     }
 
     /**
      * Propagates pointsToSet to pt(pointer) and its PFG successors,
      * returns the difference set of pointsToSet and pt(pointer).
+     * <p>
+     * Following lazy cycle detection, a successor whose points-to set
+     * already equals pt(pointer) indicates a possible cycle, and it is
+     * recorded for {@link #collapseCycles()}. Each edge is checked
+     * at most once.
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
-        PointsToSet delta = new PointsToSet();
-        PointsToSet currentSet = pointer.getPointsToSet();
-        if (!pointsToSet.isEmpty()) {
-            for (Obj obj : pointsToSet) {
-                if (currentSet.addObject(obj)) {
-                    delta.addObject(obj);
+        PointsToSet delta = pointer.getPointsToSet().addAllDiff(pointsToSet);
+        propagateDelta(pointer, delta);
+        return delta;
+    }
+
+    /**
+     * Propagates the new objects of pointer to its PFG successors.
+     */
+    private void propagateDelta(Pointer pointer, PointsToSet delta) {
+        propagateDelta(pointer, delta, workList::addEntry);
+    }
+
+    /**
+     * Propagates the new objects of pointer to its PFG successors,
+     * by passing the representatives of the successors and the objects
+     * flowing to them to {@code sink}.
+     */
+    private void propagateDelta(Pointer pointer, PointsToSet delta,
+                                BiConsumer<Pointer, PointsToSet> sink) {
+        if (!delta.isEmpty()) {
+            for (Pointer succPtr : pointerFlowGraph.getSuccsOf(pointer)) {
+                succPtr = pointerFlowGraph.getRepresentative(succPtr);
+                if (succPtr == pointer) {
+                    continue;
+                }
+                if (isCycleCandidate(pointer, succPtr)) {
+                    cycleCandidates.add(succPtr);
+                } else {
+                    sink.accept(succPtr, delta);
                 }
             }
-            for (Pointer succPtr : pointerFlowGraph.getSuccsOf(pointer)) {
-                workList.addEntry(succPtr, delta);
+            for (PointerFlowGraph.FilteredEdge edge :
+                    pointerFlowGraph.getFilteredEdgesOf(pointer)) {
+                PointsToSet filtered = filter(delta, edge.type());
+                if (!filtered.isEmpty()) {
+                    sink.accept(pointerFlowGraph.getRepresentative(edge.target()),
+                            filtered);
+                }
             }
         }
-        return delta;
+    }
+
+    /**
+     * Checks whether PFG edge pointer -> succPtr may close a cycle,
+     * i.e., pt(succPtr) equals pt(pointer), and marks the edge as checked
+     * if so. The sizes are compared first, and the objects are only
+     * compared for the edges that have not been checked.
+     */
+    private boolean isCycleCandidate(Pointer pointer, Pointer succPtr) {
+        PointsToSet succSet = succPtr.getPointsToSet();
+        if (succSet.size() != pointer.getPointsToSet().size()) {
+            return false;
+        }
+        Pair<Pointer, Pointer> edge = new Pair<>(pointer, succPtr);
+        if (checkedEdges.contains(edge) ||
+                !succSet.hasSameObjects(pointer.getPointsToSet())) {
+            return false;
+        }
+        checkedEdges.add(edge);
+        return true;
+    }
+
+    /**
+     * Detects the cycles through the recorded candidates, and merges
+     * the pointers in each cycle into one representative.
+     */
+    private void collapseCycles() {
+        while (!cycleCandidates.isEmpty()) {
+            Pointer candidate = pointerFlowGraph.getRepresentative(
+                    cycleCandidates.remove(cycleCandidates.size() - 1));
+            for (List<Pointer> cycle : pointerFlowGraph.findCycles(candidate)) {
+                Pointer rep = cycle.get(0);
+                for (int i = 1; i < cycle.size(); ++i) {
+                    merge(cycle.get(i), rep);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges a representative into another one, so that they share
+     * the points-to set of {@code rep}.
+     */
+    private void merge(Pointer pointer, Pointer rep) {
+        PointsToSet pts = pointer.getPointsToSet();
+        PointsToSet repPts = rep.getPointsToSet();
+        // objects of rep that have not been processed for the merged pointers
+        PointsToSet missing = pts.copy().addAllDiff(repPts);
+        List<Pointer> pointers = new ArrayList<>();
+        pointers.add(pointer);
+        pointers.addAll(pointerFlowGraph.getMergedPointers(pointer));
+        for (Pointer p : pointers) {
+            p.setPointsToSet(repPts);
+            if (!missing.isEmpty()) {
+                processNewObjects(p, missing);
+            }
+        }
+        List<PointerFlowGraph.FilteredEdge> filteredEdges =
+                new ArrayList<>(pointerFlowGraph.getFilteredEdgesOf(pointer));
+        for (Pointer succ : pointerFlowGraph.merge(pointer, rep)) {
+            addPFGEdge(rep, succ, null);
+        }
+        for (PointerFlowGraph.FilteredEdge edge : filteredEdges) {
+            addPFGEdge(rep, edge.target(), edge.type());
+        }
+        // objects of the merged pointers flow to rep and its successors
+        workList.addEntry(rep, pts);
     }
 
     /**
@@ -278,7 +594,7 @@ class Solver {
 
             // add <m_this, [o_i]> to WL
             Pointer thisPtr = pointerFlowGraph.getVarPtr(method.getIR().getThis());
-            workList.addEntry(thisPtr, new PointsToSet(recv));
+            workList.addEntry(thisPtr, new PointsToSet(pointerFlowGraph.getObjIndexer(), recv));
 
             // add a new edge to call graph
             CallKind callKind;
@@ -309,6 +625,14 @@ class Solver {
         return CallGraphs.resolveCallee(type, callSite);
     }
 
+    /**
+     * @return the number of entries polled from the work-list by
+     * the last {@link #solve()}.
+     */
+    long getNumberOfPolledEntries() {
+        return workList.getNumberOfPolledEntries();
+    }
+
     CIPTAResult getResult() {
         return new CIPTAResult(pointerFlowGraph, callGraph);
     }
@@ -0,0 +1,270 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Sparse bit set, which only stores the non-zero 64-bit words together
+ * with their word indexes, sorted by the indexes.
+ * <p>
+ * Compared with {@link java.util.BitSet}, the memory of this set is
+ * proportional to the number of non-zero words instead of the largest
+ * set bit, which suits points-to sets over a global object numbering,
+ * where most sets are small but their elements are spread over a large
+ * index space. Union and difference are computed word by word.
+ */
+class SparseBitSet {
+
+    private static final int[] EMPTY_INDEXES = new int[0];
+
+    private static final long[] EMPTY_WORDS = new long[0];
+
+    /**
+     * Indexes of non-zero words, in ascending order.
+     */
+    private int[] indexes = EMPTY_INDEXES;
+
+    /**
+     * Non-zero words, {@code words[i]} is the word at {@code indexes[i]}.
+     */
+    private long[] words = EMPTY_WORDS;
+
+    /**
+     * Number of non-zero words.
+     */
+    private int length = 0;
+
+    /**
+     * Number of set bits.
+     */
+    private int cardinality = 0;
+
+    /**
+     * Sets the given bit.
+     *
+     * @return true if this set changed as a result of the call,
+     * otherwise false.
+     */
+    boolean set(int bit) {
+        int index = bit >>> 6;
+        long mask = 1L << bit;
+        int pos = Arrays.binarySearch(indexes, 0, length, index);
+        if (pos >= 0) {
+            if ((words[pos] & mask) != 0) {
+                return false;
+            }
+            words[pos] |= mask;
+        } else {
+            insert(-pos - 1, index, mask);
+        }
+        ++cardinality;
+        return true;
+    }
+
+    /**
+     * @return true if the given bit is set, otherwise false.
+     */
+    boolean get(int bit) {
+        int pos = Arrays.binarySearch(indexes, 0, length, bit >>> 6);
+        return pos >= 0 && (words[pos] & (1L << bit)) != 0;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @return the number of set bits.
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Sets all bits of the given set in this set.
+     *
+     * @return true if this set changed as a result of the call,
+     * otherwise false.
+     */
+    boolean setAll(SparseBitSet other) {
+        return union(other, null);
+    }
+
+    /**
+     * Sets all bits of the given set in this set.
+     *
+     * @return the bits that are set in the given set but were not set
+     * in this set.
+     */
+    SparseBitSet setAllDiff(SparseBitSet other) {
+        SparseBitSet diff = new SparseBitSet();
+        union(other, diff);
+        return diff;
+    }
+
+    /**
+     * Unions the given set into this set, and appends the newly set words
+     * to {@code diff} if it is not null.
+     */
+    private boolean union(SparseBitSet other, SparseBitSet diff) {
+        if (other.isEmpty()) {
+            return false;
+        }
+        // count the words of other that are absent in this set
+        int absent = 0;
+        for (int i = 0, j = 0; j < other.length; ++j) {
+            while (i < length && indexes[i] < other.indexes[j]) {
+                ++i;
+            }
+            if (i == length || indexes[i] != other.indexes[j]) {
+                ++absent;
+            }
+        }
+        int oldCardinality = cardinality;
+        // the difference is built from the tail
+        int d = other.length;
+        if (diff != null) {
+            diff.indexes = new int[d];
+            diff.words = new long[d];
+        }
+        int[] newIndexes = indexes;
+        long[] newWords = words;
+        if (absent > 0) {
+            int newLength = length + absent;
+            newIndexes = new int[Math.max(newLength, newLength + (newLength >> 1))];
+            newWords = new long[newIndexes.length];
+        }
+        // merge from the tail, so that the merge can be done in place
+        int i = length - 1, j = other.length - 1, k = length + absent - 1;
+        while (j >= 0) {
+            int index = other.indexes[j];
+            if (i >= 0 && indexes[i] > index) {
+                newIndexes[k] = indexes[i];
+                newWords[k--] = words[i--];
+            } else {
+                long word = other.words[j--];
+                long old = 0;
+                if (i >= 0 && indexes[i] == index) {
+                    old = words[i--];
+                }
+                long added = word & ~old;
+                if (added != 0) {
+                    cardinality += Long.bitCount(added);
+                    if (diff != null) {
+                        diff.indexes[--d] = index;
+                        diff.words[d] = added;
+                        diff.cardinality += Long.bitCount(added);
+                    }
+                }
+                newIndexes[k] = index;
+                newWords[k--] = old | word;
+            }
+        }
+        if (absent > 0) {
+            System.arraycopy(indexes, 0, newIndexes, 0, i + 1);
+            System.arraycopy(words, 0, newWords, 0, i + 1);
+            indexes = newIndexes;
+            words = newWords;
+            length += absent;
+        }
+        if (diff != null) {
+            diff.length = other.length - d;
+            System.arraycopy(diff.indexes, d, diff.indexes, 0, diff.length);
+            System.arraycopy(diff.words, d, diff.words, 0, diff.length);
+        }
+        return cardinality != oldCardinality;
+    }
+
+    /**
+     * Inserts a non-zero word at the given position.
+     */
+    private void insert(int pos, int index, long word) {
+        if (length == indexes.length) {
+            int capacity = Math.max(2, length + (length >> 1));
+            indexes = Arrays.copyOf(indexes, capacity);
+            words = Arrays.copyOf(words, capacity);
+        }
+        System.arraycopy(indexes, pos, indexes, pos + 1, length - pos);
+        System.arraycopy(words, pos, words, pos + 1, length - pos);
+        indexes[pos] = index;
+        words[pos] = word;
+        ++length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SparseBitSet other) ||
+                cardinality != other.cardinality || length != other.length) {
+            return false;
+        }
+        return Arrays.equals(indexes, 0, length, other.indexes, 0, length) &&
+                Arrays.equals(words, 0, length, other.words, 0, length);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < length; ++i) {
+            hash = 31 * hash + indexes[i];
+            hash = 31 * hash + Long.hashCode(words[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return an iterator over the set bits in ascending order.
+     */
+    PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+
+            private int pos = 0;
+
+            private long word = length > 0 ? words[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0 && pos + 1 < length) {
+                    word = words[++pos];
+                }
+                return word != 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int bit = (indexes[pos] << 6) | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return bit;
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+
+import java.util.Map;
+
+/**
+ * Type filter of PFG edges.
+ * <p>
+ * The objects pointed to by a pointer are always assignable to the
+ * declared type of the pointer. Thus, an edge only needs to filter the
+ * objects flowing through it if the type of its source is not assignable
+ * to the type of its target, e.g., the edge from a variable to
+ * the index of an array object, as arrays are covariant.
+ * The results of subtype checks are cached in a concurrent map,
+ * so that a filter can be shared by the threads of {@link ParallelSolver}.
+ */
+class TypeFilter {
+
+    private final TypeSystem typeSystem;
+
+    /**
+     * Cache of {@link #isAssignable(Type, Type)}.
+     */
+    private final Map<Pair<Type, Type>, Boolean> assignable = Maps.newConcurrentMap();
+
+    TypeFilter(TypeSystem typeSystem) {
+        this.typeSystem = typeSystem;
+    }
+
+    /**
+     * @return the type that filters the objects flowing through an edge
+     * from a pointer of {@code sourceType} to a pointer of {@code targetType},
+     * or null if the edge needs no filter.
+     */
+    Type getFilterType(Type sourceType, Type targetType) {
+        if (!(targetType instanceof ClassType || targetType instanceof ArrayType) ||
+                isAssignable(sourceType, targetType)) {
+            return null;
+        }
+        return targetType;
+    }
+
+    /**
+     * @return true if values of type {@code from} can be assigned to
+     * type {@code to}, i.e., {@code from} is a subtype of {@code to}.
+     */
+    boolean isAssignable(Type from, Type to) {
+        return assignable.computeIfAbsent(new Pair<>(from, to),
+                p -> typeSystem.isSubtype(to, from));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Offline pointer equivalence of the variables in a method, which is
+ * a simplified form of hash-based value numbering (HVN/HU).
+ * <p>
+ * In the PFG, a local variable only receives objects from its definitions
+ * in the same method, except for parameters and "this" variable, which
+ * also receive objects from the call sites. Thus, two variables are
+ * pointer-equivalent if their definitions are the same set of copies and
+ * loads over equivalent variables, e.g., {@code a = p.f} and
+ * {@code b = q.f} where p and q are equivalent. In particular, if all
+ * definitions of a variable are copies from variables that are
+ * equivalent, then the variable is also equivalent to them.
+ * Variables that are defined by other statements, e.g., allocations and
+ * calls, are never merged. The equivalence classes are computed by
+ * union-find, and definitions are hashed by the classes of their
+ * operands, until a fixed point is reached.
+ */
+final class VarEquivalence {
+
+    private VarEquivalence() {
+    }
+
+    /**
+     * Load from a field or an array, whose base is the representative
+     * of the base variable. The base is null for static fields,
+     * and the field is null for arrays.
+     */
+    private record Load(Var base, JField field) {
+    }
+
+    /**
+     * Hash key of the definitions of a variable.
+     */
+    private record DefKey(Type type, Set<Object> defs) {
+    }
+
+    /**
+     * @return map from each variable that is equivalent to another one,
+     * to the representative variable of its equivalence class.
+     * The representatives are not in the key set.
+     */
+    static Map<Var, Var> compute(IR ir) {
+        // copy sources of the variables
+        MultiMap<Var, Var> copySources = Maps.newMultiMap();
+        // field/array loads of the variables
+        MultiMap<Var, Stmt> loads = Maps.newMultiMap();
+        // variables that are defined by neither copies nor loads
+        Set<Var> opaque = Sets.newSet();
+        if (ir.getThis() != null) {
+            opaque.add(ir.getThis());
+        }
+        opaque.addAll(ir.getParams());
+        for (Stmt stmt : ir) {
+            if (stmt instanceof Copy copy) {
+                copySources.put(copy.getLValue(), copy.getRValue());
+            } else if (stmt instanceof LoadField || stmt instanceof LoadArray) {
+                stmt.getDef().ifPresent(def -> loads.put((Var) def, stmt));
+            } else {
+                stmt.getDef().ifPresent(def -> {
+                    if (def instanceof Var var) {
+                        opaque.add(var);
+                    }
+                });
+            }
+        }
+        Map<Var, Var> parents = Maps.newMap();
+        boolean changed;
+        do {
+            changed = mergeCopies(copySources, loads, opaque, parents);
+            changed |= mergeSameDefs(copySources, loads, opaque, parents);
+        } while (changed);
+        Map<Var, Var> reps = Maps.newMap(parents.size());
+        parents.keySet().forEach(var -> reps.put(var, find(parents, var)));
+        return reps;
+    }
+
+    /**
+     * Merges each variable whose definitions are all copies from
+     * one equivalence class into that class.
+     *
+     * @return true if any variable is merged, otherwise false.
+     */
+    private static boolean mergeCopies(
+            MultiMap<Var, Var> copySources, MultiMap<Var, Stmt> loads,
+            Set<Var> opaque, Map<Var, Var> parents) {
+        boolean changed = false;
+        for (Var var : copySources.keySet()) {
+            if (opaque.contains(var) || loads.containsKey(var) ||
+                    parents.containsKey(var)) {
+                continue;
+            }
+            Var rep = null;
+            boolean single = true;
+            for (Var source : copySources.get(var)) {
+                Var sourceRep = find(parents, source);
+                if (sourceRep == var) {
+                    // ignore self copies
+                    continue;
+                }
+                if (rep == null) {
+                    rep = sourceRep;
+                } else if (rep != sourceRep) {
+                    single = false;
+                    break;
+                }
+            }
+            if (single && rep != null) {
+                parents.put(var, rep);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Merges the variables whose definitions are the same copies and
+     * loads over the current equivalence classes.
+     *
+     * @return true if any variable is merged, otherwise false.
+     */
+    private static boolean mergeSameDefs(
+            MultiMap<Var, Var> copySources, MultiMap<Var, Stmt> loads,
+            Set<Var> opaque, Map<Var, Var> parents) {
+        boolean changed = false;
+        Map<DefKey, Var> numbers = Maps.newMap();
+        Set<Var> vars = Sets.newSet();
+        vars.addAll(copySources.keySet());
+        vars.addAll(loads.keySet());
+        for (Var var : vars) {
+            if (opaque.contains(var) || parents.containsKey(var)) {
+                continue;
+            }
+            Set<Object> defs = Sets.newHybridSet();
+            for (Var source : copySources.get(var)) {
+                Var sourceRep = find(parents, source);
+                if (sourceRep != var) {
+                    defs.add(sourceRep);
+                }
+            }
+            for (Stmt stmt : loads.get(var)) {
+                defs.add(toLoad(stmt, parents));
+            }
+            // the type is part of the key, as PFG edges from fields and
+            // arrays may filter objects by the type of the variable
+            DefKey key = new DefKey(var.getType(), defs);
+            Var number = numbers.get(key);
+            if (number == null) {
+                numbers.put(key, var);
+            } else {
+                Var rep = find(parents, number);
+                if (rep != var) {
+                    parents.put(var, rep);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static Load toLoad(Stmt stmt, Map<Var, Var> parents) {
+        if (stmt instanceof LoadField load) {
+            JField field = load.getFieldRef().resolve();
+            return load.isStatic() ? new Load(null, field) :
+                    new Load(find(parents, ((InstanceFieldAccess)
+                            load.getFieldAccess()).getBase()), field);
+        } else {
+            return new Load(find(parents,
+                    ((LoadArray) stmt).getArrayAccess().getBase()), null);
+        }
+    }
+
+    private static Var find(Map<Var, Var> parents, Var var) {
+        Var parent;
+        while ((parent = parents.get(var)) != null) {
+            var = parent;
+        }
+        return var;
+    }
+}
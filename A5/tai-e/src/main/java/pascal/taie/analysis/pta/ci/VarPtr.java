@@ -23,6 +23,7 @@
 package pascal.taie.analysis.pta.ci;
 
 import pascal.taie.ir.exp.Var;
+import pascal.taie.language.type.Type;
 
 /**
  * Represents local variable pointer in PFG.
@@ -31,7 +32,16 @@ class VarPtr extends Pointer {
 
     private final Var var;
 
-    VarPtr(Var var) {
+    VarPtr(Var var, ObjIndexer indexer) {
+        super(indexer);
+        this.var = var;
+    }
+
+    /**
+     * Constructs a variable pointer that shares given points-to set.
+     */
+    VarPtr(Var var, PointsToSet pointsToSet) {
+        super(pointsToSet);
         this.var = var;
     }
 
@@ -42,6 +52,11 @@ class VarPtr extends Pointer {
         return var;
     }
 
+    @Override
+    Type getType() {
+        return var.getType();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -78,4 +78,24 @@ public class CIPTATest {
     public void testMergeParam() {
         Tests.testCIPTA(DIR, "MergeParam");
     }
+
+    @Test
+    public void testExampleParallel() {
+        Tests.testCIPTA(DIR, "Example", "parallel:true", "check-parallel:true");
+    }
+
+    @Test
+    public void testArrayParallel() {
+        Tests.testCIPTA(DIR, "Array", "parallel:true", "check-parallel:true");
+    }
+
+    @Test
+    public void testInstanceFieldParallel() {
+        Tests.testCIPTA(DIR, "InstanceField", "parallel:true", "check-parallel:true");
+    }
+
+    @Test
+    public void testStaticCallParallel() {
+        Tests.testCIPTA(DIR, "StaticCall", "parallel:true", "check-parallel:true");
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Test;
+import pascal.taie.analysis.pta.ci.Datalog.Atom;
+import pascal.taie.analysis.pta.ci.Datalog.Functor;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DatalogTest {
+
+    private static final int X = 0, Y = 1, Z = 2;
+
+    @Test
+    public void testTransitiveClosure() {
+        // chain 0 -> 1 -> ... -> 9
+        int[][] edges = new int[9][];
+        for (int i = 0; i < 9; ++i) {
+            edges[i] = new int[]{ i, i + 1 };
+        }
+        Set<String> path = transitiveClosure(edges, 1);
+        assertEquals(45, path.size());
+        assertEquals(expectedClosure(edges, 10), path);
+    }
+
+    @Test
+    public void testTransitiveClosureOfCycle() {
+        int[][] edges = { { 0, 1 }, { 1, 2 }, { 2, 0 }, { 2, 3 } };
+        Set<String> path = transitiveClosure(edges, 1);
+        // 0, 1, 2 reach each other and 3
+        assertEquals(12, path.size());
+        assertEquals(expectedClosure(edges, 4), path);
+    }
+
+    @Test
+    public void testParallelEqualsSequential() {
+        Random random = new Random(0);
+        int n = 60;
+        int[][] edges = new int[150][];
+        for (int i = 0; i < edges.length; ++i) {
+            edges[i] = new int[]{ random.nextInt(n), random.nextInt(n) };
+        }
+        Set<String> expected = expectedClosure(edges, n);
+        assertEquals(expected, transitiveClosure(edges, 1));
+        assertEquals(expected, transitiveClosure(edges, 4));
+    }
+
+    @Test
+    public void testFactsAddedBetweenSteps() {
+        Datalog datalog = new Datalog(1);
+        Relation edge = datalog.newRelation("Edge", 2);
+        Relation path = datalog.newRelation("Path", 2);
+        addClosureRules(datalog, edge, path);
+        edge.add(0, 1);
+        runToFixedPoint(datalog);
+        assertEquals(1, path.size());
+        edge.add(1, 2);
+        runToFixedPoint(datalog);
+        assertEquals(Set.of("0->1", "1->2", "0->2"), toSet(path));
+    }
+
+    @Test
+    public void testFunctor() {
+        Datalog datalog = new Datalog(1);
+        Relation num = datalog.newRelation("Num", 1);
+        Relation next = datalog.newRelation("Next", 2);
+        Relation even = datalog.newRelation("Even", 1);
+        // Next(x, y) :- Num(x), y = x + 1, y < 5.
+        datalog.addRule(new Atom(next, X, Y),
+                new Atom(num, X),
+                new Functor(args -> args[0] + 1 < 5 ? args[0] + 1 : -1, Y, X));
+        // Num(y) :- Next(x, y).
+        datalog.addRule(new Atom(num, Y), new Atom(next, X, Y));
+        // Even(x) :- Num(x), x % 2 == 0.
+        datalog.addRule(new Atom(even, X),
+                new Atom(num, X),
+                new Functor(args -> args[0] % 2 == 0 ? 0 : -1, -1, X));
+        num.add(0);
+        runToFixedPoint(datalog);
+        assertEquals(5, num.size());
+        assertEquals(4, next.size());
+        assertEquals(Set.of("0", "2", "4"), toSet(even));
+    }
+
+    private static Set<String> transitiveClosure(int[][] edges, int nThreads) {
+        Datalog datalog = new Datalog(nThreads);
+        Relation edge = datalog.newRelation("Edge", 2);
+        Relation path = datalog.newRelation("Path", 2);
+        addClosureRules(datalog, edge, path);
+        for (int[] e : edges) {
+            edge.add(e[0], e[1]);
+        }
+        runToFixedPoint(datalog);
+        return toSet(path);
+    }
+
+    /**
+     * Path(x, y) :- Edge(x, y).
+     * Path(x, z) :- Path(x, y), Edge(y, z).
+     */
+    private static void addClosureRules(Datalog datalog, Relation edge, Relation path) {
+        datalog.addRule(new Atom(path, X, Y), new Atom(edge, X, Y));
+        datalog.addRule(new Atom(path, X, Z),
+                new Atom(path, X, Y), new Atom(edge, Y, Z));
+    }
+
+    private static void runToFixedPoint(Datalog datalog) {
+        try {
+            while (datalog.step()) {
+            }
+            assertFalse(datalog.step());
+        } finally {
+            datalog.shutdown();
+        }
+    }
+
+    private static Set<String> expectedClosure(int[][] edges, int n) {
+        boolean[][] reach = new boolean[n][n];
+        for (int[] e : edges) {
+            reach[e[0]][e[1]] = true;
+        }
+        for (int k = 0; k < n; ++k) {
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < n; ++j) {
+                    reach[i][j] |= reach[i][k] && reach[k][j];
+                }
+            }
+        }
+        Set<String> result = new TreeSet<>();
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                if (reach[i][j]) {
+                    result.add(i + "->" + j);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> toSet(Relation relation) {
+        Set<String> tuples = new TreeSet<>();
+        for (int row = 0; row < relation.size(); ++row) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < relation.getArity(); ++i) {
+                if (i > 0) {
+                    sb.append("->");
+                }
+                sb.append(relation.get(row, i));
+            }
+            tuples.add(sb.toString());
+        }
+        return tuples;
+    }
+}
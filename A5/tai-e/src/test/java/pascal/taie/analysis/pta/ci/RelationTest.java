@@ -0,0 +1,104 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RelationTest {
+
+    @Test
+    public void testAddAndDeduplicate() {
+        Relation relation = new Relation("R", 2);
+        assertTrue(relation.add(1, 2));
+        assertTrue(relation.add(2, 1));
+        assertFalse(relation.add(1, 2));
+        assertEquals(2, relation.size());
+        assertEquals(1, relation.get(0, 0));
+        assertEquals(2, relation.get(0, 1));
+        assertEquals(2, relation.get(1, 0));
+    }
+
+    @Test
+    public void testManyTuples() {
+        Relation relation = new Relation("R", 3);
+        int n = 0;
+        for (int i = 0; i < 100; ++i) {
+            for (int j = 0; j < 100; ++j) {
+                assertTrue(relation.add(i, j, i * j));
+                ++n;
+            }
+        }
+        assertEquals(n, relation.size());
+        for (int i = 0; i < 100; ++i) {
+            for (int j = 0; j < 100; ++j) {
+                assertFalse(relation.add(i, j, i * j));
+            }
+        }
+        assertEquals(n, relation.size());
+    }
+
+    @Test
+    public void testIndex() {
+        Relation relation = new Relation("R", 2);
+        for (int i = 0; i < 1000; ++i) {
+            relation.add(i % 7, -i);
+        }
+        Relation.IntList rows = relation.getRows(0, 3);
+        assertEquals(143, rows.size());
+        for (int i = 0; i < rows.size(); ++i) {
+            int row = rows.get(i);
+            assertEquals(3, relation.get(row, 0));
+            if (i > 0) {
+                assertTrue(rows.get(i - 1) < row);
+            }
+        }
+        assertEquals(1, relation.getRows(1, -999).size());
+        assertNull(relation.getRows(0, 7));
+        assertNull(relation.getRows(1, 1));
+    }
+
+    @Test
+    public void testVersions() {
+        Relation relation = new Relation("R", 1);
+        relation.add(1);
+        relation.add(2);
+        assertTrue(relation.advance());
+        relation.add(3);
+        assertEquals(0, relation.getStart(Relation.Version.DELTA));
+        assertEquals(2, relation.getEnd(Relation.Version.DELTA));
+        assertEquals(0, relation.getEnd(Relation.Version.OLD));
+        assertTrue(relation.advance());
+        assertEquals(2, relation.getStart(Relation.Version.DELTA));
+        assertEquals(3, relation.getEnd(Relation.Version.FULL));
+        assertEquals(2, relation.getEnd(Relation.Version.OLD));
+        assertFalse(relation.advance());
+        assertFalse(relation.hasDelta());
+        assertEquals(3, relation.getEnd(Relation.Version.OLD));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SparseBitSetTest {
+
+    @Test
+    public void testSetAndGet() {
+        SparseBitSet set = new SparseBitSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.set(1000));
+        assertTrue(set.set(3));
+        assertTrue(set.set(63));
+        assertTrue(set.set(64));
+        assertFalse(set.set(3));
+        assertTrue(set.get(3));
+        assertTrue(set.get(63));
+        assertTrue(set.get(64));
+        assertTrue(set.get(1000));
+        assertFalse(set.get(4));
+        assertFalse(set.get(999));
+        assertFalse(set.get(100000));
+        assertFalse(set.isEmpty());
+        assertEquals(4, set.cardinality());
+        assertEquals(toBitSet(3, 63, 64, 1000), toBitSet(set));
+    }
+
+    @Test
+    public void testSetAll() {
+        SparseBitSet s1 = of(1, 200, 5000);
+        SparseBitSet s2 = of(1, 2, 300, 5000, 70000);
+        assertTrue(s1.setAll(s2));
+        assertEquals(toBitSet(1, 2, 200, 300, 5000, 70000), toBitSet(s1));
+        assertEquals(6, s1.cardinality());
+        assertFalse(s1.setAll(s2));
+        assertFalse(s1.setAll(new SparseBitSet()));
+        // in-place merge, i.e., no new words
+        SparseBitSet s3 = of(0, 64, 128);
+        assertTrue(s3.setAll(of(1, 65)));
+        assertEquals(toBitSet(0, 1, 64, 65, 128), toBitSet(s3));
+    }
+
+    @Test
+    public void testSetAllDiff() {
+        SparseBitSet set = of(1, 200, 5000);
+        SparseBitSet diff = set.setAllDiff(of(1, 2, 200, 201, 70000));
+        assertEquals(toBitSet(2, 201, 70000), toBitSet(diff));
+        assertEquals(3, diff.cardinality());
+        assertEquals(toBitSet(1, 2, 200, 201, 5000, 70000), toBitSet(set));
+        assertTrue(set.setAllDiff(of(2, 5000)).isEmpty());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        SparseBitSet s1 = of(7, 700, 7000);
+        SparseBitSet s2 = of(7000, 7);
+        assertNotEquals(s1, s2);
+        s2.set(700);
+        assertEquals(s1, s2);
+        assertEquals(s1.hashCode(), s2.hashCode());
+        // the same bits built by union and by single sets
+        SparseBitSet s3 = new SparseBitSet();
+        s3.setAll(of(7, 7000));
+        s3.setAll(of(700));
+        assertEquals(s1, s3);
+        assertEquals(s1.hashCode(), s3.hashCode());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testIteratorExhausted() {
+        PrimitiveIterator.OfInt it = of(42).iterator();
+        assertEquals(42, it.nextInt());
+        assertFalse(it.hasNext());
+        it.nextInt();
+    }
+
+    @Test
+    public void testRandomAgainstBitSet() {
+        Random random = new Random(0);
+        for (int round = 0; round < 100; ++round) {
+            SparseBitSet sparse = new SparseBitSet();
+            BitSet expected = new BitSet();
+            for (int i = 0; i < 20; ++i) {
+                SparseBitSet other = new SparseBitSet();
+                BitSet otherExpected = new BitSet();
+                int bound = random.nextBoolean() ? 256 : 1 << 20;
+                for (int j = random.nextInt(30); j > 0; --j) {
+                    int bit = random.nextInt(bound);
+                    other.set(bit);
+                    otherExpected.set(bit);
+                }
+                BitSet expectedDiff = (BitSet) otherExpected.clone();
+                expectedDiff.andNot(expected);
+                expected.or(otherExpected);
+                SparseBitSet diff = sparse.setAllDiff(other);
+                assertEquals(expectedDiff, toBitSet(diff));
+                assertEquals(expectedDiff.cardinality(), diff.cardinality());
+                assertEquals(expected, toBitSet(sparse));
+                assertEquals(expected.cardinality(), sparse.cardinality());
+            }
+        }
+    }
+
+    private static SparseBitSet of(int... bits) {
+        SparseBitSet set = new SparseBitSet();
+        for (int bit : bits) {
+            set.set(bit);
+        }
+        return set;
+    }
+
+    private static BitSet toBitSet(int... bits) {
+        BitSet set = new BitSet();
+        for (int bit : bits) {
+            set.set(bit);
+        }
+        return set;
+    }
+
+    private static BitSet toBitSet(SparseBitSet sparse) {
+        BitSet set = new BitSet();
+        int last = -1;
+        for (PrimitiveIterator.OfInt it = sparse.iterator(); it.hasNext(); ) {
+            int bit = it.nextInt();
+            assertTrue("bits are not in ascending order", bit > last);
+            assertTrue(sparse.get(bit));
+            set.set(bit);
+            last = bit;
+        }
+        return set;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.ci;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.analysis.pta.core.heap.AllocationTypeBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmark of the work-list policies of {@link Solver}.
+ * <p>
+ * For each test program, the solver runs with every policy, and the number
+ * of polled work-list entries and the average solving time are reported.
+ * The results of all policies are checked to be the same as the one of
+ * {@link WorkList.Policy#FIFO}.
+ */
+public class WorkListBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(WorkListBenchmark.class);
+
+    private static final String CLASS_PATH = "src/test/resources/pta/cipta";
+
+    private static final List<String> PROGRAMS = List.of(
+            "Example", "Array", "Assign", "Assign2", "StoreLoad", "Call",
+            "InstanceField", "StaticField", "StaticCall", "MergeParam");
+
+    /**
+     * Number of runs of each policy before measuring.
+     */
+    private static final int WARMUP_RUNS = 3;
+
+    /**
+     * Number of measured runs of each policy.
+     */
+    private static final int RUNS = 10;
+
+    @Test
+    public void benchmarkPolicies() {
+        for (String program : PROGRAMS) {
+            Main.buildWorld("-pp", "-cp", CLASS_PATH, "-m", program);
+            // objects are shared by the results to be compared
+            HeapModel heapModel = new AllocationTypeBasedModel(getOptions());
+            CIPTAResult expected = null;
+            for (WorkList.Policy policy : WorkList.Policy.values()) {
+                for (int i = 0; i < WARMUP_RUNS; ++i) {
+                    new Solver(heapModel, false, policy).solve();
+                }
+                Solver solver = null;
+                long time = 0;
+                for (int i = 0; i < RUNS; ++i) {
+                    solver = new Solver(heapModel, false, policy);
+                    long start = System.nanoTime();
+                    solver.solve();
+                    time += System.nanoTime() - start;
+                }
+                logger.info("{} {}: {} entries polled, {} us per run",
+                        program, policy, solver.getNumberOfPolledEntries(),
+                        time / RUNS / 1000);
+                if (expected == null) {
+                    expected = solver.getResult();
+                } else {
+                    assertSameResult(program, policy, expected, solver.getResult());
+                }
+            }
+        }
+    }
+
+    private static AnalysisOptions getOptions() {
+        return new AnalysisOptions(Map.of(
+                "merge-string-constants", false,
+                "merge-string-objects", false,
+                "merge-string-builders", false,
+                "merge-exception-objects", true,
+                "merge-library-objects", false));
+    }
+
+    private static void assertSameResult(String program, WorkList.Policy policy,
+                                         CIPTAResult expected, CIPTAResult given) {
+        Set<Var> vars = Sets.newSet();
+        vars.addAll(expected.getVars());
+        vars.addAll(given.getVars());
+        for (Var var : vars) {
+            assertEquals(program + " " + policy + ": points-to set of " + var,
+                    expected.getPointsToSet(var), given.getPointsToSet(var));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.Indexable;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Hash-consed contexts, which are nodes of a trie. Each context is
+ * represented by its last element and a pointer to its parent, i.e.,
+ * the context without the last element, and the empty context is the
+ * root of the trie. The contexts are interned by {@link Factory}, thus
+ * equal contexts are the same object and are compared by reference,
+ * and each context has a unique index in its factory, which is also
+ * its hash code, so that hashing contexts is deterministic.
+ */
+public class TrieContext implements Context, Indexable {
+
+    private final TrieContext parent;
+
+    private final Object elem;
+
+    private final int length;
+
+    private final int index;
+
+    /**
+     * Map from context elements to the children of this context,
+     * which is created when the first child is added.
+     */
+    private Map<Object, TrieContext> children;
+
+    /**
+     * The context without the first element, which is cached
+     * when it is first needed by k-limiting.
+     */
+    private TrieContext tail;
+
+    private TrieContext(TrieContext parent, Object elem, int index) {
+        this.parent = parent;
+        this.elem = elem;
+        this.length = parent == null ? 0 : parent.length + 1;
+        this.index = index;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public Object getElementAt(int i) {
+        if (i < 0 || i >= length) {
+            throw new AnalysisException(
+                    "Context " + this + " doesn't have " + i + "-th element");
+        }
+        TrieContext context = this;
+        for (int j = length - 1; j > i; --j) {
+            context = context.parent;
+        }
+        return context.elem;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the context without the last element, or null if
+     * this context is empty.
+     */
+    public TrieContext getParent() {
+        return parent;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        // same as the string of list, e.g., [a, b]
+        StringBuilder sb = new StringBuilder("]");
+        for (TrieContext c = this; c.parent != null; c = c.parent) {
+            sb.insert(0, c.elem);
+            if (c.parent.parent != null) {
+                sb.insert(0, ", ");
+            }
+        }
+        return sb.insert(0, '[').toString();
+    }
+
+    /**
+     * Creates and interns trie contexts. The contexts from a factory are
+     * indexed from 0 in the order they are created, and the contexts from
+     * different factories must not be mixed. This class is not thread-safe.
+     */
+    public static class Factory {
+
+        private final TrieContext root = new TrieContext(null, null, 0);
+
+        private int counter = 1;
+
+        /**
+         * @return the empty context.
+         */
+        public TrieContext make() {
+            return root;
+        }
+
+        /**
+         * @return the context that consists of given context elements.
+         */
+        public TrieContext make(Object... elements) {
+            TrieContext context = root;
+            for (Object elem : elements) {
+                context = getChild(context, elem);
+            }
+            return context;
+        }
+
+        /**
+         * @return the context that consists of the last {@code limit}
+         * elements of given context, which must be made by this factory.
+         */
+        public TrieContext limit(Context context, int limit) {
+            TrieContext result = (TrieContext) context;
+            while (result.length > limit) {
+                result = getTail(result);
+            }
+            return result;
+        }
+
+        /**
+         * Extends given context, which must be made by this factory, by
+         * given element, and keeps the last {@code limit} elements.
+         * The result is the child of given context if it is shorter
+         * than the limit, thus it is found without traversing the trie.
+         */
+        public TrieContext append(Context context, Object elem, int limit) {
+            return getChild(limit(context, limit - 1), elem);
+        }
+
+        private TrieContext getTail(TrieContext context) {
+            if (context.tail == null) {
+                context.tail = context.length == 1 ? root :
+                        getChild(getTail(context.parent), context.elem);
+            }
+            return context.tail;
+        }
+
+        private TrieContext getChild(TrieContext parent, Object elem) {
+            if (parent.children == null) {
+                parent.children = Maps.newHybridMap();
+            }
+            TrieContext child = parent.children.get(elem);
+            if (child == null) {
+                child = new TrieContext(parent, elem, counter++);
+                parent.children.put(elem, child);
+            }
+            return child;
+        }
+    }
+}
@@ -32,9 +32,20 @@ public class CSObj extends AbstractCSElement {
 
     private final Obj obj;
 
+    /**
+     * Number of this object in the {@link NumberedCSManager} that
+     * creates it, or -1 if it is created by other managers.
+     */
+    private final int number;
+
     CSObj(Obj obj, Context context) {
+        this(obj, context, -1);
+    }
+
+    CSObj(Obj obj, Context context, int number) {
         super(context);
         this.obj = obj;
+        this.number = number;
     }
 
     /**
@@ -44,6 +55,13 @@ public class CSObj extends AbstractCSElement {
         return obj;
     }
 
+    /**
+     * @return the number of this object in its {@link NumberedCSManager}.
+     */
+    int getNumber() {
+        return number;
+    }
+
     @Override
     public String toString() {
         return context + ":" + obj;
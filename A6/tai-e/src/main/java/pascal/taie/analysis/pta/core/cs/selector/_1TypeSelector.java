@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -35,9 +35,11 @@ import pascal.taie.language.classes.JMethod;
  */
 public class _1TypeSelector implements ContextSelector {
 
+    private final TrieContext.Factory factory = new TrieContext.Factory();
+
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return factory.make();
     }
 
     @Override
@@ -49,7 +51,7 @@ public class _1TypeSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        return ListContext.make(recv.getObject().getContainerType());
+        return factory.make(recv.getObject().getContainerType());
     }
 
     @Override
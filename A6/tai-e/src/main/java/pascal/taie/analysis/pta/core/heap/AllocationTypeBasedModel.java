@@ -0,0 +1,128 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap model that merges the objects allocated at the sites of selected
+ * types into one object per type, and treats the other allocation sites
+ * as {@link AllocationSiteBasedModel} does. This trades precision for
+ * fewer objects and smaller points-to sets on code that allocates the
+ * same types at many sites, e.g., collections. The types are selected by
+ * following options:
+ * <ul>
+ *     <li>{@code merge-library-objects}: whether to merge the objects of
+ *     library classes, and of arrays whose base types are library classes.
+ *     <li>{@code merge-types}: a list (or a comma-separated string) of type
+ *     names, where a name ending with {@code *} matches the types whose
+ *     names start with the part before {@code *}, e.g., {@code java.util.*}.
+ * </ul>
+ * When none of the types is selected, this model is equivalent to
+ * {@link AllocationSiteBasedModel}.
+ */
+public class AllocationTypeBasedModel extends AllocationSiteBasedModel {
+
+    private final boolean isMergeLibraryObjects;
+
+    /**
+     * Type names that are matched exactly.
+     */
+    private final List<String> typeNames;
+
+    /**
+     * Prefixes of type names, from the patterns ending with {@code *}.
+     */
+    private final List<String> typePrefixes;
+
+    /**
+     * Caches whether the objects of each type are merged.
+     */
+    private final Map<Type, Boolean> mergedTypes = Maps.newMap();
+
+    public AllocationTypeBasedModel(AnalysisOptions options) {
+        super(options);
+        isMergeLibraryObjects = options.getBooleanOrDefault(
+                "merge-library-objects", false);
+        List<String> patterns = getTypePatterns(options.get("merge-types"));
+        typeNames = patterns.stream()
+                .filter(p -> !p.endsWith("*"))
+                .toList();
+        typePrefixes = patterns.stream()
+                .filter(p -> p.endsWith("*"))
+                .map(p -> p.substring(0, p.length() - 1))
+                .toList();
+    }
+
+    private static List<String> getTypePatterns(Object value) {
+        if (value == null) {
+            return List.of();
+        } else if (value instanceof String patterns) {
+            return Arrays.stream(patterns.split(","))
+                    .map(String::strip)
+                    .filter(p -> !p.isEmpty())
+                    .toList();
+        } else if (value instanceof Collection<?> patterns) {
+            return patterns.stream()
+                    .map(String::valueOf)
+                    .toList();
+        } else {
+            throw new ConfigException("Illegal value of merge-types: " + value);
+        }
+    }
+
+    @Override
+    public Obj getObj(New allocSite) {
+        Type type = allocSite.getRValue().getType();
+        if (mergedTypes.computeIfAbsent(type, this::isMerged)) {
+            return getMergedObj(allocSite);
+        }
+        return super.getObj(allocSite);
+    }
+
+    private boolean isMerged(Type type) {
+        if (isMergeLibraryObjects) {
+            Type baseType = type instanceof ArrayType arrayType ?
+                    arrayType.baseType() : type;
+            if (baseType instanceof ClassType classType &&
+                    !classType.getJClass().isApplication()) {
+                return true;
+            }
+        }
+        String name = type.getName();
+        return typeNames.contains(name) ||
+                typePrefixes.stream().anyMatch(name::startsWith);
+    }
+}
@@ -26,7 +26,7 @@ import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
-import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.AllocationTypeBasedModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
@@ -51,7 +51,7 @@ public class CSPTA extends ProgramAnalysis {
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
         Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
+                new AllocationTypeBasedModel(options),
                 getContextSelector(options.getString("cs")));
         solver.solve();
         PointerAnalysisResult result = solver.getResult();
@@ -59,7 +59,7 @@ public class CSPTA extends ProgramAnalysis {
         return result;
     }
 
-    private static ContextSelector getContextSelector(String cs) {
+    static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
         } else {
@@ -23,13 +23,30 @@
 package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.language.type.Type;
 import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Represents pointer flow graph in context-sensitive pointer analysis.
+ * <p>
+ * Pointers in a cycle of the PFG always have the same points-to set at
+ * the fixed point, thus the solver may merge them into one representative
+ * pointer. Merged pointers are tracked by a union-find, and their out edges
+ * are moved to the representative, while the edges to them are redirected
+ * to the representative lazily by {@link #getRepresentative(Pointer)}.
  */
 class PointerFlowGraph {
 
@@ -38,6 +55,167 @@ class PointerFlowGraph {
      */
     private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
 
+    /**
+     * Map from a pointer (node) to its successors through the edges
+     * with type filters.
+     */
+    private final MultiMap<Pointer, FilteredEdge> filteredSuccessors = Maps.newMultiMap();
+
+    /**
+     * Union-find parent of each pointer that has been merged into
+     * another pointer, i.e., collapsed into a cycle representative.
+     */
+    private final Map<Pointer, Pointer> parents = Maps.newMap();
+
+    /**
+     * Map from a representative to the pointers merged into it.
+     */
+    private final MultiMap<Pointer, Pointer> mergedPointers = Maps.newMultiMap();
+
+    /**
+     * @return the representative of given pointer. A pointer that has not
+     * been merged is the representative of itself.
+     */
+    Pointer getRepresentative(Pointer pointer) {
+        Pointer parent = parents.get(pointer);
+        if (parent == null) {
+            return pointer;
+        }
+        Pointer rep = getRepresentative(parent);
+        if (rep != parent) {
+            // path compression
+            parents.put(pointer, rep);
+        }
+        return rep;
+    }
+
+    /**
+     * @return the pointers merged into given representative.
+     */
+    Set<Pointer> getMergedPointers(Pointer rep) {
+        return mergedPointers.get(rep);
+    }
+
+    /**
+     * Merges a representative into another one. The pointers merged into
+     * {@code pointer} are moved to {@code rep}, and the out edges of
+     * {@code pointer} are removed, which should be added to {@code rep}
+     * by the caller.
+     *
+     * @return the successors of {@code pointer} through the edges
+     * without type filters before the merge.
+     */
+    List<Pointer> merge(Pointer pointer, Pointer rep) {
+        parents.put(pointer, rep);
+        mergedPointers.put(rep, pointer);
+        mergedPointers.putAll(rep, mergedPointers.get(pointer));
+        mergedPointers.removeAll(pointer);
+        List<Pointer> succs = new ArrayList<>(successors.get(pointer));
+        successors.removeAll(pointer);
+        filteredSuccessors.removeAll(pointer);
+        return succs;
+    }
+
+    /**
+     * Finds the strongly connected components of this PFG that are
+     * reachable from given representative, by Tarjan's algorithm over
+     * the representatives of the pointers. Edges with type filters
+     * are ignored, as they may not preserve points-to sets.
+     *
+     * @return the components that contain more than one representative.
+     */
+    List<List<Pointer>> findCycles(Pointer start) {
+        List<List<Pointer>> cycles = new ArrayList<>();
+        Map<Pointer, Integer> indexes = Maps.newMap();
+        Map<Pointer, Integer> lows = Maps.newMap();
+        Deque<Pointer> stack = new ArrayDeque<>();
+        Set<Pointer> onStack = Sets.newSet();
+        Deque<Pair<Pointer, Iterator<Pointer>>> frames = new ArrayDeque<>();
+        indexes.put(start, 0);
+        lows.put(start, 0);
+        stack.push(start);
+        onStack.add(start);
+        frames.push(new Pair<>(start, getSuccsOf(start).iterator()));
+        while (!frames.isEmpty()) {
+            Pointer node = frames.peek().first();
+            Iterator<Pointer> succs = frames.peek().second();
+            if (succs.hasNext()) {
+                Pointer succ = getRepresentative(succs.next());
+                if (!indexes.containsKey(succ)) {
+                    indexes.put(succ, indexes.size());
+                    lows.put(succ, indexes.get(succ));
+                    stack.push(succ);
+                    onStack.add(succ);
+                    frames.push(new Pair<>(succ, getSuccsOf(succ).iterator()));
+                } else if (onStack.contains(succ)) {
+                    lows.put(node, Math.min(lows.get(node), indexes.get(succ)));
+                }
+            } else {
+                frames.pop();
+                if (!frames.isEmpty()) {
+                    Pointer parent = frames.peek().first();
+                    lows.put(parent, Math.min(lows.get(parent), lows.get(node)));
+                }
+                if (lows.get(node).equals(indexes.get(node))) {
+                    List<Pointer> component = new ArrayList<>();
+                    Pointer member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    } while (member != node);
+                    if (component.size() > 1) {
+                        cycles.add(component);
+                    }
+                }
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Computes a topological order of the representatives reachable from
+     * given roots, i.e., the reverse post-order of a depth-first search
+     * over both plain and filtered edges. If the reachable subgraph still
+     * contains cycles, e.g., the ones through filtered edges, the order
+     * is topological except for the back edges of the search.
+     */
+    List<Pointer> getTopologicalOrder(Collection<Pointer> roots) {
+        List<Pointer> postOrder = new ArrayList<>();
+        Set<Pointer> visited = Sets.newSet();
+        Deque<Pair<Pointer, Iterator<Pointer>>> frames = new ArrayDeque<>();
+        for (Pointer root : roots) {
+            root = getRepresentative(root);
+            if (!visited.add(root)) {
+                continue;
+            }
+            frames.push(new Pair<>(root, getAllSuccsOf(root).iterator()));
+            while (!frames.isEmpty()) {
+                Iterator<Pointer> succs = frames.peek().second();
+                if (succs.hasNext()) {
+                    Pointer succ = getRepresentative(succs.next());
+                    if (visited.add(succ)) {
+                        frames.push(new Pair<>(succ, getAllSuccsOf(succ).iterator()));
+                    }
+                } else {
+                    postOrder.add(frames.pop().first());
+                }
+            }
+        }
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+
+    /**
+     * @return successors of given pointer through both plain and
+     * filtered edges.
+     */
+    private List<Pointer> getAllSuccsOf(Pointer pointer) {
+        List<Pointer> succs = new ArrayList<>(getSuccsOf(pointer));
+        getFilteredEdgesOf(pointer).forEach(edge -> succs.add(edge.target()));
+        return succs;
+    }
+
     /**
      * Adds an edge (source -> target) to this PFG.
      *
@@ -49,9 +227,35 @@ class PointerFlowGraph {
     }
 
     /**
-     * @return successors of given pointer in the PFG.
+     * Adds an edge (source -> target) with a type filter to this PFG.
+     * Only the objects whose types are assignable to {@code type}
+     * flow through the edge.
+     *
+     * @return true if this PFG changed as a result of the call,
+     * otherwise false.
+     */
+    boolean addFilteredEdge(Pointer source, Pointer target, Type type) {
+        return filteredSuccessors.put(source, new FilteredEdge(target, type));
+    }
+
+    /**
+     * @return successors of given pointer in the PFG, through the edges
+     * without type filters.
      */
     Set<Pointer> getSuccsOf(Pointer pointer) {
         return successors.get(pointer);
     }
+
+    /**
+     * @return out edges with type filters of given pointer in the PFG.
+     */
+    Set<FilteredEdge> getFilteredEdgesOf(Pointer pointer) {
+        return filteredSuccessors.get(pointer);
+    }
+
+    /**
+     * Represents PFG edges with type filters.
+     */
+    record FilteredEdge(Pointer target, Type type) {
+    }
 }
@@ -32,14 +32,13 @@ import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.CSVar;
 import pascal.taie.analysis.pta.core.cs.element.InstanceField;
-import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
+import pascal.taie.analysis.pta.core.cs.element.NumberedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.core.cs.element.StaticField;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
@@ -52,11 +51,26 @@ import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 class Solver {
 
     private static final Logger logger = LogManager.getLogger(Solver.class);
 
+    /**
+     * Minimum number of new PFG edges to recompute topological ranks.
+     */
+    private static final int TOPO_RANK_THRESHOLD = 64;
+
     private final AnalysisOptions options;
 
     private final HeapModel heapModel;
@@ -73,6 +87,39 @@ class Solver {
 
     private PointerAnalysisResult result;
 
+    /**
+     * Whether to propagate points-to sets in waves.
+     */
+    private boolean waves;
+
+    /**
+     * Policy of the order in which the work-list polls pointers.
+     */
+    private WorkList.Policy policy;
+
+    /**
+     * Topological ranks of the representatives in the PFG,
+     * used by {@link WorkList.Policy#TOPO}.
+     */
+    private Map<Pointer, Integer> topoRanks;
+
+    /**
+     * Number of PFG edges added since {@link #topoRanks} was computed.
+     */
+    private int newEdges;
+
+    private TypeFilter typeFilter;
+
+    /**
+     * PFG edges that have been checked for cycles.
+     */
+    private Set<Pair<Pointer, Pointer>> checkedEdges;
+
+    /**
+     * Pointers from which cycle detection is pending.
+     */
+    private List<Pointer> cycleCandidates;
+
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
         this.options = options;
@@ -83,13 +130,22 @@ class Solver {
     void solve() {
         initialize();
         analyze();
+        logger.info("{} work-list entries polled ({} policy)",
+                getNumberOfPolledEntries(), policy);
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        csManager = new NumberedCSManager();
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
-        workList = new WorkList();
+        policy = WorkList.Policy.of(options.getString("work-list"));
+        topoRanks = Maps.newMap();
+        workList = new WorkList(policy, pointer -> topoRanks.getOrDefault(
+                pointerFlowGraph.getRepresentative(pointer), Integer.MAX_VALUE));
+        typeFilter = new TypeFilter(World.get().getTypeSystem());
+        waves = options.getBooleanOrDefault("wave", false);
+        checkedEdges = Sets.newSet();
+        cycleCandidates = new ArrayList<>();
         // process program entry, i.e., main method
         Context defContext = contextSelector.getEmptyContext();
         JMethod main = World.get().getMainMethod();
@@ -194,96 +250,364 @@ class Solver {
      */
     private void addPFGEdge(Pointer source, Pointer target) {
         // TODO - finish me
-        if (pointerFlowGraph.addEdge(source, target)) {
-            PointsToSet setFromSource = source.getPointsToSet();
+        addPFGEdge(source, target,
+                typeFilter.getFilterType(source.getType(), target.getType()));
+    }
+
+    /**
+     * Adds an edge "source -> target" to the PFG, through which only
+     * the objects assignable to {@code filterType} flow.
+     *
+     * @param filterType the type filter of the edge, or null if all
+     *                   objects flow through the edge.
+     */
+    private void addPFGEdge(Pointer source, Pointer target, Type filterType) {
+        source = pointerFlowGraph.getRepresentative(source);
+        target = pointerFlowGraph.getRepresentative(target);
+        if (source == target) {
+            // self-loops (possibly filtered) propagate no new objects
+            return;
+        }
+        boolean added = filterType == null ?
+                pointerFlowGraph.addEdge(source, target) :
+                pointerFlowGraph.addFilteredEdge(source, target, filterType);
+        if (added) {
+            ++newEdges;
+            PointsToSet setFromSource = filter(source.getPointsToSet(), filterType);
             if (!setFromSource.isEmpty()) {
                 workList.addEntry(target, setFromSource);
             }
         }
     }
 
+    /**
+     * @return the objects in given set that are assignable to given type,
+     * or the set itself if type is null.
+     */
+    private PointsToSet filter(PointsToSet pts, Type type) {
+        if (type == null) {
+            return pts;
+        }
+        PointsToSet result = PointsToSetFactory.make();
+        for (CSObj csObj : pts) {
+            if (typeFilter.isAssignable(csObj.getObject().getType(), type)) {
+                result.addObject(csObj);
+            }
+        }
+        return result;
+    }
+
     /**
      * Processes work-list entries until the work-list is empty.
      */
     private void analyze() {
         // TODO - finish me
+        if (waves) {
+            analyzeInWaves();
+            return;
+        }
         while (!workList.isEmpty()) {
+            if (policy == WorkList.Policy.TOPO) {
+                updateTopoRanks();
+            }
             WorkList.Entry entry = workList.pollEntry();
-            Pointer pointer = entry.pointer();
+            Pointer pointer = pointerFlowGraph.getRepresentative(entry.pointer());
             PointsToSet pts = entry.pointsToSet();
             PointsToSet delta = propagate(pointer, pts);
-            if (pointer instanceof CSVar csVar) {
-                Var var = csVar.getVar();
-                Context context = csVar.getContext();
-                for (CSObj csObj : delta) {
-                    for (StoreField store : var.getStoreFields()) {
-                        JField instanceField = store.getFieldRef().resolve();
-                        InstanceField targetPtr = csManager.getInstanceField(csObj, instanceField);
-                        CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    for (LoadField load : var.getLoadFields()) {
-                        JField instanceField = load.getFieldRef().resolve();
-                        InstanceField sourcePtr = csManager.getInstanceField(csObj, instanceField);
-                        CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    for (StoreArray store : var.getStoreArrays()) {
-                        ArrayIndex targetPtr = csManager.getArrayIndex(csObj);
-                        CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    for (LoadArray load : var.getLoadArrays()) {
-                        ArrayIndex sourcePtr = csManager.getArrayIndex(csObj);
-                        CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
-                        addPFGEdge(sourcePtr, targetPtr);
-                    }
-                    processCall(csVar, csObj);
+            if (!delta.isEmpty()) {
+                processNewObjects(pointer, delta);
+                for (Pointer merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    processNewObjects(merged, delta);
+                }
+            }
+            collapseCycles();
+        }
+    }
+
+    /**
+     * Recomputes the topological ranks of the PFG reachable from the
+     * pointers in the work-list, once the number of edges added since
+     * the last computation exceeds the number of ranked pointers,
+     * so that the cost of ranking is amortized over the edges.
+     */
+    private void updateTopoRanks() {
+        if (newEdges > Math.max(topoRanks.size(), TOPO_RANK_THRESHOLD)) {
+            newEdges = 0;
+            topoRanks.clear();
+            List<Pointer> order = pointerFlowGraph.getTopologicalOrder(
+                    workList.getPointers());
+            for (int i = 0; i < order.size(); ++i) {
+                topoRanks.put(order.get(i), i);
+            }
+            workList.reorder();
+        }
+    }
+
+    /**
+     * Processes work-list entries in waves until the work-list is empty.
+     * <p>
+     * Each wave drains the work-list, coalesces the entries by the
+     * representatives of their pointers, and computes a topological order
+     * of the part of the PFG reachable from them. The points-to sets are
+     * then propagated along the order, so that each pointer is visited
+     * at most once per wave, after its predecessors, with the objects from
+     * all of them at once. Objects propagated along the back edges of the
+     * order are left to the next wave. Afterwards, the new objects of the
+     * visited pointers are processed in a batch, which adds the PFG edges
+     * of field/array accesses and the call edges, and cycles are collapsed.
+     */
+    private void analyzeInWaves() {
+        while (!workList.isEmpty()) {
+            Map<Pointer, PointsToSet> pending = new LinkedHashMap<>();
+            WorkList.Entry entry;
+            while ((entry = workList.pollEntry()) != null) {
+                addPending(pending, pointerFlowGraph.getRepresentative(entry.pointer()),
+                        entry.pointsToSet());
+            }
+            List<Pointer> order = pointerFlowGraph.getTopologicalOrder(pending.keySet());
+            Map<Pointer, Integer> ranks = Maps.newMap(order.size());
+            for (int i = 0; i < order.size(); ++i) {
+                ranks.put(order.get(i), i);
+            }
+            // propagation phase
+            List<Pair<Pointer, PointsToSet>> deltas = new ArrayList<>();
+            for (Pointer pointer : order) {
+                PointsToSet pts = pending.remove(pointer);
+                if (pts == null) {
+                    continue;
+                }
+                PointsToSet delta = addAllDiff(pointer.getPointsToSet(), pts);
+                if (!delta.isEmpty()) {
+                    deltas.add(new Pair<>(pointer, delta));
+                    int rank = ranks.get(pointer);
+                    propagateDelta(pointer, delta, (succ, objs) -> {
+                        if (ranks.getOrDefault(succ, -1) > rank) {
+                            addPending(pending, succ, objs);
+                        } else {
+                            workList.addEntry(succ, objs);
+                        }
+                    });
+                }
+            }
+            // batch phase
+            for (Pair<Pointer, PointsToSet> pair : deltas) {
+                Pointer pointer = pair.first();
+                PointsToSet delta = pair.second();
+                processNewObjects(pointer, delta);
+                for (Pointer merged : pointerFlowGraph.getMergedPointers(pointer)) {
+                    processNewObjects(merged, delta);
+                }
+            }
+            collapseCycles();
+        }
+    }
+
+    /**
+     * Adds objects to the pending points-to set of given pointer.
+     */
+    private static void addPending(Map<Pointer, PointsToSet> pending,
+                                   Pointer pointer, PointsToSet pts) {
+        PointsToSet set = pending.computeIfAbsent(pointer, p -> PointsToSetFactory.make());
+        set.addAll(pts);
+    }
+
+    /**
+     * Processes the field/array accesses and instance calls on the variable
+     * of given pointer, for the objects newly pointed to by the variable.
+     * <p>
+     * Each statement is visited once per delta: its field is resolved,
+     * its other variable is fetched and, for field accesses, the type
+     * filter of its edges is computed once, and then its edges for all
+     * objects in the delta are added in bulk.
+     */
+    private void processNewObjects(Pointer pointer, PointsToSet objs) {
+        if (pointer instanceof CSVar csVar) {
+            Var var = csVar.getVar();
+            Context context = csVar.getContext();
+            for (StoreField store : var.getStoreFields()) {
+                JField instanceField = store.getFieldRef().resolve();
+                CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
+                Type filterType = typeFilter.getFilterType(
+                        sourcePtr.getType(), instanceField.getType());
+                for (CSObj csObj : objs) {
+                    InstanceField targetPtr = csManager.getInstanceField(csObj, instanceField);
+                    addPFGEdge(sourcePtr, targetPtr, filterType);
+                }
+            }
+            for (LoadField load : var.getLoadFields()) {
+                JField instanceField = load.getFieldRef().resolve();
+                CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
+                Type filterType = typeFilter.getFilterType(
+                        instanceField.getType(), targetPtr.getType());
+                for (CSObj csObj : objs) {
+                    InstanceField sourcePtr = csManager.getInstanceField(csObj, instanceField);
+                    addPFGEdge(sourcePtr, targetPtr, filterType);
                 }
             }
+            for (StoreArray store : var.getStoreArrays()) {
+                CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
+                for (CSObj csObj : objs) {
+                    // the element types of array objects may differ
+                    addPFGEdge(sourcePtr, csManager.getArrayIndex(csObj));
+                }
+            }
+            for (LoadArray load : var.getLoadArrays()) {
+                CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
+                for (CSObj csObj : objs) {
+                    addPFGEdge(csManager.getArrayIndex(csObj), targetPtr);
+                }
+            }
+            processCall(csVar, objs);
         }
     }
 
     /**
      * Propagates pointsToSet to pt(pointer) and its PFG successors,
      * returns the difference set of pointsToSet and pt(pointer).
+     * <p>
+     * Following lazy cycle detection, a successor whose points-to set
+     * already equals pt(pointer) indicates a possible cycle, and it is
+     * recorded for {@link #collapseCycles()}. Each edge is checked
+     * at most once.
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
+        PointsToSet delta = addAllDiff(pointer.getPointsToSet(), pointsToSet);
+        propagateDelta(pointer, delta, workList::addEntry);
+        return delta;
+    }
+
+    /**
+     * Adds the objects of {@code pts} to {@code target}.
+     *
+     * @return the objects that were not in {@code target}.
+     */
+    private static PointsToSet addAllDiff(PointsToSet target, PointsToSet pts) {
         PointsToSet delta = PointsToSetFactory.make();
+        for (CSObj csObj : pts) {
+            if (target.addObject(csObj)) {
+                delta.addObject(csObj);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Propagates the new objects of pointer to its PFG successors,
+     * by passing the representatives of the successors and the objects
+     * flowing to them to {@code sink}.
+     */
+    private void propagateDelta(Pointer pointer, PointsToSet delta,
+                                BiConsumer<Pointer, PointsToSet> sink) {
         PointsToSet currentSet = pointer.getPointsToSet();
-        if (!pointsToSet.isEmpty()) {
-            for (CSObj csObj : pointsToSet) {
-                if (currentSet.addObject(csObj)) {
-                    delta.addObject(csObj);
+        if (!delta.isEmpty()) {
+            for (Pointer succPtr : pointerFlowGraph.getSuccsOf(pointer)) {
+                succPtr = pointerFlowGraph.getRepresentative(succPtr);
+                if (succPtr == pointer) {
+                    continue;
+                }
+                if (isCycleCandidate(pointer, succPtr, currentSet)) {
+                    cycleCandidates.add(succPtr);
+                } else {
+                    sink.accept(succPtr, delta);
                 }
             }
-            for (Pointer succPtr : pointerFlowGraph.getSuccsOf(pointer)) {
-                workList.addEntry(succPtr, delta);
+            for (PointerFlowGraph.FilteredEdge edge :
+                    pointerFlowGraph.getFilteredEdgesOf(pointer)) {
+                PointsToSet filtered = filter(delta, edge.type());
+                if (!filtered.isEmpty()) {
+                    sink.accept(pointerFlowGraph.getRepresentative(edge.target()),
+                            filtered);
+                }
             }
         }
-        return delta;
+    }
+
+    /**
+     * Checks whether PFG edge pointer -> succPtr may close a cycle,
+     * i.e., pt(succPtr) equals pt(pointer), and marks the edge as checked
+     * if so. The sizes are compared first, and the objects are only
+     * compared for the edges that have not been checked.
+     */
+    private boolean isCycleCandidate(Pointer pointer, Pointer succPtr,
+                                     PointsToSet currentSet) {
+        PointsToSet succSet = succPtr.getPointsToSet();
+        if (succSet.size() != currentSet.size()) {
+            return false;
+        }
+        Pair<Pointer, Pointer> edge = new Pair<>(pointer, succPtr);
+        if (checkedEdges.contains(edge) ||
+                !succSet.getObjects().containsAll(currentSet.getObjects())) {
+            return false;
+        }
+        checkedEdges.add(edge);
+        return true;
+    }
+
+    /**
+     * Detects the cycles through the recorded candidates, and merges
+     * the pointers in each cycle into one representative.
+     */
+    private void collapseCycles() {
+        while (!cycleCandidates.isEmpty()) {
+            Pointer candidate = pointerFlowGraph.getRepresentative(
+                    cycleCandidates.remove(cycleCandidates.size() - 1));
+            for (List<Pointer> cycle : pointerFlowGraph.findCycles(candidate)) {
+                Pointer rep = cycle.get(0);
+                for (int i = 1; i < cycle.size(); ++i) {
+                    merge(cycle.get(i), rep);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges a representative into another one, so that they share
+     * the points-to set of {@code rep}.
+     */
+    private void merge(Pointer pointer, Pointer rep) {
+        PointsToSet pts = pointer.getPointsToSet();
+        PointsToSet repPts = rep.getPointsToSet();
+        // objects of rep that have not been processed for the merged pointers
+        PointsToSet missing = PointsToSetFactory.make();
+        for (CSObj csObj : repPts) {
+            if (!pts.contains(csObj)) {
+                missing.addObject(csObj);
+            }
+        }
+        List<Pointer> pointers = new ArrayList<>();
+        pointers.add(pointer);
+        pointers.addAll(pointerFlowGraph.getMergedPointers(pointer));
+        for (Pointer p : pointers) {
+            p.setPointsToSet(repPts);
+            if (!missing.isEmpty()) {
+                processNewObjects(p, missing);
+            }
+        }
+        List<PointerFlowGraph.FilteredEdge> filteredEdges =
+                new ArrayList<>(pointerFlowGraph.getFilteredEdgesOf(pointer));
+        for (Pointer succ : pointerFlowGraph.merge(pointer, rep)) {
+            addPFGEdge(rep, succ, null);
+        }
+        for (PointerFlowGraph.FilteredEdge edge : filteredEdges) {
+            addPFGEdge(rep, edge.target(), edge.type());
+        }
+        // objects of the merged pointers flow to rep and its successors
+        workList.addEntry(rep, pts);
     }
 
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
      *
-     * @param recv    the receiver variable
-     * @param recvObj set of new discovered objects pointed by the variable.
+     * @param recv     the receiver variable
+     * @param recvObjs set of new discovered objects pointed by the variable.
      */
-    private void processCall(CSVar recv, CSObj recvObj) {
+    private void processCall(CSVar recv, PointsToSet recvObjs) {
         // TODO - finish me
         Var recvVar = recv.getVar();
         Context recvContext = recv.getContext();
         for (Invoke callSite : recvVar.getInvokes()) {
-            JMethod method = resolveCallee(recvObj, callSite);
             CSCallSite csCallSite = csManager.getCSCallSite(recvContext, callSite);
-            Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, method);
-            CSMethod csMethod = csManager.getCSMethod(calleeContext, method);
-
-            CSVar thisPtr = csManager.getCSVar(calleeContext, method.getIR().getThis());
-            workList.addEntry(thisPtr, PointsToSetFactory.make(recvObj));
-
             CallKind callKind;
             if (callSite.isStatic()) { callKind = CallKind.STATIC; }
             else if (callSite.isSpecial()) { callKind = CallKind.SPECIAL; }
@@ -292,8 +616,17 @@ class Solver {
             else if (callSite.isDynamic()) { callKind = CallKind.DYNAMIC; }
             else { callKind = CallKind.OTHER; }
 
-            if (callGraph.addEdge(new Edge<>(callKind, csCallSite, csMethod))) {
-                handleNewReachableMethod(csMethod, csCallSite);
+            for (CSObj recvObj : recvObjs) {
+                JMethod method = resolveCallee(recvObj, callSite);
+                Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, method);
+                CSMethod csMethod = csManager.getCSMethod(calleeContext, method);
+
+                CSVar thisPtr = csManager.getCSVar(calleeContext, method.getIR().getThis());
+                workList.addEntry(thisPtr, PointsToSetFactory.make(recvObj));
+
+                if (callGraph.addEdge(new Edge<>(callKind, csCallSite, csMethod))) {
+                    handleNewReachableMethod(csMethod, csCallSite);
+                }
             }
         }
     }
@@ -332,6 +665,14 @@ class Solver {
         return CallGraphs.resolveCallee(type, callSite);
     }
 
+    /**
+     * @return the number of entries polled from the work-list by
+     * the last {@link #solve()}.
+     */
+    long getNumberOfPolledEntries() {
+        return workList.getNumberOfPolledEntries();
+    }
+
     PointerAnalysisResult getResult() {
         if (result == null) {
             result = new PointerAnalysisResultImpl(csManager, callGraph);
@@ -24,22 +24,194 @@ package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.config.ConfigException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
 
 import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 /**
  * Represents work list in pointer analysis.
+ * <p>
+ * The work list holds at most one entry for each pointer: when a pointer
+ * is added again before its entry is processed, the given objects are
+ * merged into the pending points-to set of the existing entry, so that
+ * each pointer is propagated once for all objects that flowed into it
+ * in the meantime.
+ * <p>
+ * The order in which the pointers are polled is decided by a {@link Policy}.
+ * The priorities of the priority-based policies are computed when
+ * a pointer enters the work list, and can be recomputed by
+ * {@link #reorder()}. Pointers of the same priority are polled
+ * in FIFO order.
  */
 class WorkList {
 
-    private final Queue<Entry> entries = new ArrayDeque<>();
+    /**
+     * Policies of the order in which the work list polls pointers.
+     */
+    enum Policy {
+
+        /**
+         * First in, first out.
+         */
+        FIFO,
+
+        /**
+         * Last in, first out.
+         */
+        LIFO,
+
+        /**
+         * Least recently fired, i.e., polled, pointer first.
+         */
+        LRF,
+
+        /**
+         * Pointer with the smallest points-to set first.
+         */
+        SMALLEST_PTS,
+
+        /**
+         * Pointer with the lowest topological rank in the PFG first.
+         */
+        TOPO;
+
+        /**
+         * @return the policy of given name, e.g., "fifo" or "smallest-pts",
+         * or {@link #FIFO} if the name is null.
+         */
+        static Policy of(String name) {
+            if (name == null) {
+                return FIFO;
+            }
+            try {
+                return valueOf(name.toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new ConfigException("Unknown work-list policy: " + name, e);
+            }
+        }
+    }
+
+    private final Policy policy;
+
+    /**
+     * Topological ranks of the pointers, used by {@link Policy#TOPO}.
+     */
+    private final ToIntFunction<Pointer> ranks;
+
+    /**
+     * Pointers that have pending objects, used by {@link Policy#FIFO}
+     * and {@link Policy#LIFO}.
+     */
+    private final Deque<Pointer> pointers = new ArrayDeque<>();
+
+    /**
+     * Pointers that have pending objects, used by the priority-based policies.
+     */
+    private final PriorityQueue<Item> queue = new PriorityQueue<>(
+            Comparator.comparingLong(Item::priority).thenComparingLong(Item::order));
+
+    /**
+     * Pending objects of the pointers in the work list.
+     */
+    private final Map<Pointer, PointsToSet> pendingSets = Maps.newMap();
+
+    /**
+     * Pointers whose pending sets are owned by this work list. The set of
+     * the first entry of a pointer is kept by reference, and it is copied
+     * only when another set is merged into it, as most pointers are polled
+     * before they are added again.
+     */
+    private final Set<Pointer> ownedSets = Sets.newSet();
+
+    /**
+     * Times at which the pointers were last polled, used by {@link Policy#LRF}.
+     */
+    private final Map<Pointer, Long> fireTimes = Maps.newMap();
+
+    /**
+     * Number of polled entries, which also serves as the clock of
+     * {@link Policy#LRF}.
+     */
+    private long nPolled;
 
     /**
-     * Adds an entry to the work list.
+     * Number of entries that have entered the work list, which orders
+     * the pointers of the same priority.
+     */
+    private long nAdded;
+
+    WorkList() {
+        this(Policy.FIFO, pointer -> 0);
+    }
+
+    /**
+     * @param ranks topological ranks of pointers, only used by {@link Policy#TOPO}.
+     */
+    WorkList(Policy policy, ToIntFunction<Pointer> ranks) {
+        this.policy = policy;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Adds an entry to the work list. If the pointer is already in the
+     * work list, merges the points-to set into its pending set.
+     * <p>
+     * Given set is never modified by the work list, but it may be kept
+     * until the entry is polled, thus callers must not remove objects from
+     * it. Objects added to it in the meantime, e.g., to the points-to set
+     * of a PFG source, are polled with the entry, which is sound as they
+     * flow to the pointer anyway.
      */
     void addEntry(Pointer pointer, PointsToSet pointsToSet) {
-        entries.add(new Entry(pointer, pointsToSet));
+        if (pointsToSet.isEmpty()) {
+            return;
+        }
+        PointsToSet pending = pendingSets.get(pointer);
+        if (pending == null) {
+            pendingSets.put(pointer, pointsToSet);
+            switch (policy) {
+                case FIFO, LIFO -> pointers.add(pointer);
+                default -> queue.add(new Item(pointer, getPriority(pointer), nAdded));
+            }
+            ++nAdded;
+        } else {
+            if (ownedSets.add(pointer)) {
+                // the pending set may be shared, thus copy it before merging
+                pending = copy(pending);
+                pendingSets.put(pointer, pending);
+            }
+            pending.addAll(pointsToSet);
+        }
+    }
+
+    private static PointsToSet copy(PointsToSet pointsToSet) {
+        PointsToSet copy = PointsToSetFactory.make();
+        copy.addAll(pointsToSet);
+        return copy;
+    }
+
+    /**
+     * @return the priority of given pointer, the smaller the earlier
+     * the pointer is polled.
+     */
+    private long getPriority(Pointer pointer) {
+        return switch (policy) {
+            // pointers that have never been fired come first
+            case LRF -> fireTimes.getOrDefault(pointer, -1L);
+            case SMALLEST_PTS -> pointer.getPointsToSet().size();
+            case TOPO -> ranks.applyAsInt(pointer);
+            default -> 0;
+        };
     }
 
     /**
@@ -47,20 +219,72 @@ class WorkList {
      * if this work list is empty.
      */
     Entry pollEntry() {
-        return entries.poll();
+        Pointer pointer = switch (policy) {
+            case FIFO -> pointers.pollFirst();
+            case LIFO -> pointers.pollLast();
+            default -> {
+                Item item = queue.poll();
+                yield item == null ? null : item.pointer();
+            }
+        };
+        if (pointer == null) {
+            return null;
+        }
+        if (policy == Policy.LRF) {
+            fireTimes.put(pointer, nPolled);
+        }
+        ++nPolled;
+        ownedSets.remove(pointer);
+        return new Entry(pointer, pendingSets.remove(pointer));
+    }
+
+    /**
+     * Recomputes the priorities of the pointers in the work list,
+     * e.g., after the topological ranks have changed.
+     */
+    void reorder() {
+        if (!queue.isEmpty()) {
+            Item[] items = queue.toArray(new Item[0]);
+            queue.clear();
+            for (Item item : items) {
+                queue.add(new Item(item.pointer(), getPriority(item.pointer()), item.order()));
+            }
+        }
+    }
+
+    /**
+     * @return the pointers in the work list.
+     */
+    Collection<Pointer> getPointers() {
+        return pendingSets.keySet();
+    }
+
+    /**
+     * @return the number of entries that have been polled from this work list.
+     */
+    long getNumberOfPolledEntries() {
+        return nPolled;
     }
 
     /**
      * @return true if the work list is empty, otherwise false.
      */
     boolean isEmpty() {
-        return entries.isEmpty();
+        return pendingSets.isEmpty();
     }
 
     /**
      * Represents entries in the work list.
-     * Each entry consists of a pointer and a points-to set.
+     * Each entry consists of a pointer and a points-to set, which may be
+     * the set given to {@link #addEntry}, thus it must not be modified.
      */
     record Entry(Pointer pointer, PointsToSet pointsToSet) {
     }
+
+    /**
+     * Pointers in the priority queue, with their priorities and the order
+     * in which they entered the work list.
+     */
+    private record Item(Pointer pointer, long priority, long order) {
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.cs.context;
+
+import org.junit.Test;
+import pascal.taie.util.AnalysisException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TrieContextTest {
+
+    @Test
+    public void testMake() {
+        TrieContext.Factory factory = new TrieContext.Factory();
+        TrieContext empty = factory.make();
+        TrieContext ab = factory.make("a", "b");
+        assertEquals(0, empty.getLength());
+        assertEquals(2, ab.getLength());
+        assertEquals("a", ab.getElementAt(0));
+        assertEquals("b", ab.getElementAt(1));
+        assertSame(factory.make("a"), ab.getParent());
+        assertSame(empty, ab.getParent().getParent());
+        assertEquals("[]", empty.toString());
+        assertEquals("[a, b]", ab.toString());
+    }
+
+    @Test
+    public void testInterning() {
+        TrieContext.Factory factory = new TrieContext.Factory();
+        TrieContext ab = factory.make("a", "b");
+        assertSame(ab, factory.make("a", "b"));
+        assertNotSame(ab, factory.make("b", "a"));
+        assertNotSame(ab, factory.make("a"));
+    }
+
+    @Test
+    public void testHashCode() {
+        TrieContext.Factory factory = new TrieContext.Factory();
+        assertEquals(0, factory.make().hashCode());
+        assertEquals(1, factory.make("a").hashCode());
+        assertEquals(2, factory.make("a", "b").hashCode());
+        assertEquals(3, factory.make("b").hashCode());
+        assertEquals(factory.make("b").getIndex(), factory.make("b").hashCode());
+    }
+
+    @Test
+    public void testAppend() {
+        TrieContext.Factory factory = new TrieContext.Factory();
+        TrieContext a = factory.make("a");
+        // shorter than the limit, the child is returned
+        assertSame(factory.make("a", "b"), factory.append(a, "b", 2));
+        assertSame(a, factory.append(factory.make(), "a", 2));
+        // reaching the limit, the first element is dropped
+        TrieContext ab = factory.make("a", "b");
+        assertSame(factory.make("b", "c"), factory.append(ab, "c", 2));
+        assertSame(factory.make("c"), factory.append(ab, "c", 1));
+        // the tails are cached, and are still interned
+        assertSame(factory.make("b", "c"), factory.append(ab, "c", 2));
+        assertSame(factory.make("b", "c", "d"),
+                factory.append(factory.make("a", "b", "c"), "d", 3));
+    }
+
+    @Test
+    public void testLimit() {
+        TrieContext.Factory factory = new TrieContext.Factory();
+        TrieContext abc = factory.make("a", "b", "c");
+        assertSame(abc, factory.limit(abc, 3));
+        assertSame(abc, factory.limit(abc, 4));
+        assertSame(factory.make("b", "c"), factory.limit(abc, 2));
+        assertSame(factory.make("c"), factory.limit(abc, 1));
+        assertSame(factory.make(), factory.limit(abc, 0));
+    }
+
+    @Test(expected = AnalysisException.class)
+    public void testElementOutOfRange() {
+        new TrieContext.Factory().make("a").getElementAt(1);
+    }
+}
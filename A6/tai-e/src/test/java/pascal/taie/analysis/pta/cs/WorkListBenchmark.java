@@ -0,0 +1,153 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.cs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.AllocationTypeBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmark of the work-list policies of {@link Solver}.
+ * <p>
+ * For each test program, the solver runs with every policy under the
+ * context sensitivity of the program, and the number of polled work-list
+ * entries and the average solving time are reported. The results of all
+ * policies are checked to be the same as the one of
+ * {@link WorkList.Policy#FIFO}.
+ */
+public class WorkListBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(WorkListBenchmark.class);
+
+    private static final String CLASS_PATH = "src/test/resources/pta/cspta";
+
+    private static final List<Program> PROGRAMS = List.of(
+            new Program("New", "ci"),
+            new Program("Assign", "ci"),
+            new Program("StoreLoad", "ci"),
+            new Program("Call", "ci"),
+            new Program("InstanceField", "ci"),
+            new Program("StaticField", "ci"),
+            new Program("Array", "ci"),
+            new Program("OneCall", "1-call"),
+            new Program("OneObject", "1-obj"),
+            new Program("OneType", "1-type"),
+            new Program("TwoCall", "2-call"),
+            new Program("TwoObject", "2-obj"),
+            new Program("TwoType", "2-type"));
+
+    /**
+     * Number of runs of each policy before measuring.
+     */
+    private static final int WARMUP_RUNS = 3;
+
+    /**
+     * Number of measured runs of each policy.
+     */
+    private static final int RUNS = 10;
+
+    @Test
+    public void benchmarkPolicies() {
+        for (Program program : PROGRAMS) {
+            Main.buildWorld("-pp", "-cp", CLASS_PATH, "-m", program.main());
+            // objects are shared by the results to be compared
+            HeapModel heapModel = new AllocationTypeBasedModel(
+                    getOptions(program.cs(), null));
+            PointerAnalysisResult expected = null;
+            for (WorkList.Policy policy : WorkList.Policy.values()) {
+                AnalysisOptions options = getOptions(program.cs(), policy);
+                for (int i = 0; i < WARMUP_RUNS; ++i) {
+                    newSolver(options, heapModel).solve();
+                }
+                Solver solver = null;
+                long time = 0;
+                for (int i = 0; i < RUNS; ++i) {
+                    solver = newSolver(options, heapModel);
+                    long start = System.nanoTime();
+                    solver.solve();
+                    time += System.nanoTime() - start;
+                }
+                logger.info("{} ({}) {}: {} entries polled, {} us per run",
+                        program.main(), program.cs(), policy,
+                        solver.getNumberOfPolledEntries(), time / RUNS / 1000);
+                if (expected == null) {
+                    expected = solver.getResult();
+                } else {
+                    assertSameResult(program, policy, expected, solver.getResult());
+                }
+            }
+        }
+    }
+
+    private static Solver newSolver(AnalysisOptions options, HeapModel heapModel) {
+        return new Solver(options, heapModel,
+                CSPTA.getContextSelector(options.getString("cs")));
+    }
+
+    /**
+     * @param policy the work-list policy, or null for the default one.
+     */
+    private static AnalysisOptions getOptions(String cs, WorkList.Policy policy) {
+        Map<String, Object> options = Maps.newMap();
+        options.put("cs", cs);
+        options.put("wave", false);
+        options.put("work-list", policy == null ? null :
+                policy.name().toLowerCase().replace('_', '-'));
+        options.put("merge-string-constants", false);
+        options.put("merge-string-objects", false);
+        options.put("merge-string-builders", false);
+        options.put("merge-exception-objects", true);
+        options.put("merge-library-objects", false);
+        return new AnalysisOptions(options);
+    }
+
+    private static void assertSameResult(Program program, WorkList.Policy policy,
+                                         PointerAnalysisResult expected,
+                                         PointerAnalysisResult given) {
+        Set<Var> vars = Sets.newSet();
+        vars.addAll(expected.getVars());
+        vars.addAll(given.getVars());
+        for (Var var : vars) {
+            assertEquals(program.main() + " " + policy + ": points-to set of " + var,
+                    expected.getPointsToSet(var), given.getPointsToSet(var));
+        }
+    }
+
+    private record Program(String main, String cs) {
+    }
+}
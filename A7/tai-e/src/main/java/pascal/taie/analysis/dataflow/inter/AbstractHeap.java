@@ -0,0 +1,114 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Abstract heap of {@link InterConstantPropagation}, which maps heap
+ * locations to the meet of the values stored to them.
+ * <p>
+ * Field locations are static fields ({@code JField}) and instance fields
+ * of objects ({@code Pair<Obj, JField>}). Each array object is split into
+ * cells by the constant index (or NAC) of the stores. Values of locations
+ * only move down the lattice, and all operations are thread-safe.
+ */
+class AbstractHeap {
+
+    private final ConstantPropagation cp;
+
+    private final ConcurrentMap<Object, Value> fieldValues = Maps.newConcurrentMap();
+
+    private final ConcurrentMap<Obj, ConcurrentMap<Value, Value>> arrayValues =
+            Maps.newConcurrentMap();
+
+    AbstractHeap(ConstantPropagation cp) {
+        this.cp = cp;
+    }
+
+    /**
+     * @return the value of given field location.
+     */
+    Value loadField(Object location) {
+        return fieldValues.getOrDefault(location, Value.getUndef());
+    }
+
+    /**
+     * Meets given value into the field location.
+     *
+     * @return true if the value of the location changed, otherwise false.
+     */
+    boolean storeField(Object location, Value value) {
+        return meetInto(fieldValues, location, value);
+    }
+
+    /**
+     * @return the meet of the values of the cells of given array
+     * that may be accessed by given index.
+     */
+    Value loadArray(Obj array, Value index) {
+        Map<Value, Value> cells = arrayValues.get(array);
+        if (cells == null || index.isUndef()) {
+            return Value.getUndef();
+        }
+        if (index.isNAC()) {
+            Value value = Value.getUndef();
+            for (Value cellValue : cells.values()) {
+                value = cp.meetValue(value, cellValue);
+            }
+            return value;
+        }
+        return cp.meetValue(
+                cells.getOrDefault(index, Value.getUndef()),
+                cells.getOrDefault(Value.getNAC(), Value.getUndef()));
+    }
+
+    /**
+     * Meets given value into the cell of given array at given index.
+     *
+     * @return true if the value of the cell changed, otherwise false.
+     */
+    boolean storeArray(Obj array, Value index, Value value) {
+        if (index.isUndef()) {
+            return false;
+        }
+        return meetInto(arrayValues.computeIfAbsent(array,
+                        a -> Maps.newConcurrentMap()), index, value);
+    }
+
+    private <K> boolean meetInto(ConcurrentMap<K, Value> values, K key, Value value) {
+        if (value.isUndef()) {
+            return false;
+        }
+        Value oldValue = values.getOrDefault(key, Value.getUndef());
+        Value newValue = values.merge(key, value, cp::meetValue);
+        return !newValue.equals(oldValue);
+    }
+}
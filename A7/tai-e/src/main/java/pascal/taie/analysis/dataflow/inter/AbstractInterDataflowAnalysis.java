@@ -45,6 +45,17 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
         extends ProgramAnalysis
         implements InterDataflowAnalysis<Node, Fact> {
 
+    /**
+     * Option for seeding the work-list only from the entry nodes
+     * and external seeds, instead of all ICFG nodes.
+     */
+    private static final String DEMAND_SEED = "demand-seed";
+
+    /**
+     * Option for solving the analysis by {@link ParallelInterSolver}.
+     */
+    private static final String PARALLEL = "parallel";
+
     protected ICFG<Method, Node> icfg;
 
     protected InterSolver<Method, Node, Fact> solver;
@@ -107,6 +118,21 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
         }
     }
 
+    /**
+     * Dispatches normal and call-to-return edges to their specific
+     * meet functions, and other edges to {@link #transferEdge}.
+     */
+    @Override
+    public void meetEdgeInto(ICFGEdge<Node> edge, Fact out, Fact target) {
+        if (edge instanceof NormalEdge) {
+            meetNormalEdgeInto((NormalEdge<Node>) edge, out, target);
+        } else if (edge instanceof CallToReturnEdge) {
+            meetCallToReturnEdgeInto((CallToReturnEdge<Node>) edge, out, target);
+        } else {
+            meetInto(transferEdge(edge, out), target);
+        }
+    }
+
     // ---------- transfer functions for specific ICFG edges ----------
     protected abstract Fact transferNormalEdge(NormalEdge<Node> edge, Fact out);
 
@@ -115,13 +141,34 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     protected abstract Fact transferCallEdge(CallEdge<Node> edge, Fact callSiteOut);
 
     protected abstract Fact transferReturnEdge(ReturnEdge<Node> edge, Fact returnOut);
+
+    /**
+     * Meets the result of {@link #transferNormalEdge} into target.
+     * Analyses can override this to avoid creating the transferred fact.
+     */
+    protected void meetNormalEdgeInto(NormalEdge<Node> edge, Fact out, Fact target) {
+        meetInto(transferNormalEdge(edge, out), target);
+    }
+
+    /**
+     * Meets the result of {@link #transferCallToReturnEdge} into target.
+     * Analyses can override this to avoid creating the transferred fact.
+     */
+    protected void meetCallToReturnEdgeInto(
+            CallToReturnEdge<Node> edge, Fact out, Fact target) {
+        meetInto(transferCallToReturnEdge(edge, out), target);
+    }
     // ----------------------------------------------------------------
 
     @Override
     public Object analyze() {
         icfg = World.get().getResult(ICFGBuilder.ID);
         initialize();
-        solver = new InterSolver<>(this, icfg);
+        boolean demandSeeded = getOptions().getBooleanOrDefault(DEMAND_SEED, false);
+        solver = getOptions().getBooleanOrDefault(PARALLEL, false) ?
+                new ParallelInterSolver<>(this, icfg, demandSeeded,
+                        Runtime.getRuntime().availableProcessors()) :
+                new InterSolver<>(this, icfg, demandSeeded);
         DataflowResult<Node, Fact> result = solver.solve();
         finish();
         return result;
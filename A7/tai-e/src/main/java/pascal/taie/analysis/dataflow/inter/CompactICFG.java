@@ -0,0 +1,233 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frozen, compact representation of an ICFG for the solvers.
+ * <p>
+ * Nodes are numbered from 0 to N-1 and edges from 0 to E-1. The in/out
+ * edges of each node are stored contiguously in int arrays (in compressed
+ * sparse row form), and the source, target and kind of each edge are
+ * stored in primitive arrays, so that the solvers can iterate edges of
+ * a node without allocating iterators or edge sets. The original edge
+ * objects are kept for the edge transfer functions of the analysis.
+ */
+class CompactICFG<Method, Node> {
+
+    static final byte NORMAL = 0;
+
+    static final byte CALL_TO_RETURN = 1;
+
+    static final byte CALL = 2;
+
+    static final byte RETURN = 3;
+
+    private final List<Node> nodes;
+
+    private final Map<Node, Integer> nodeIndexes;
+
+    /**
+     * Numbers of the entry nodes of entry methods.
+     */
+    private final BitSet entryNodes;
+
+    private final List<ICFGEdge<Node>> edges;
+
+    private final int[] sources;
+
+    private final int[] targets;
+
+    private final byte[] kinds;
+
+    /**
+     * In edges of node i are {@code inEdges[inStarts[i] .. inStarts[i+1])}.
+     */
+    private final int[] inStarts;
+
+    private final int[] inEdges;
+
+    /**
+     * Edges are numbered by their sources, thus out edges of node i are
+     * the edges numbered from {@code outStarts[i]} to {@code outStarts[i+1] - 1}.
+     */
+    private final int[] outStarts;
+
+    CompactICFG(ICFG<Method, Node> icfg) {
+        nodes = new ArrayList<>(icfg.getNodes());
+        int nNodes = nodes.size();
+        nodeIndexes = Maps.newMap(nNodes);
+        for (int i = 0; i < nNodes; ++i) {
+            nodeIndexes.put(nodes.get(i), i);
+        }
+        entryNodes = new BitSet(nNodes);
+        icfg.entryMethods().forEach(method ->
+                entryNodes.set(nodeIndexes.get(icfg.getEntryOf(method))));
+        // number edges by their sources
+        edges = new ArrayList<>();
+        outStarts = new int[nNodes + 1];
+        for (int i = 0; i < nNodes; ++i) {
+            outStarts[i] = edges.size();
+            edges.addAll(icfg.getOutEdgesOf(nodes.get(i)));
+        }
+        int nEdges = edges.size();
+        outStarts[nNodes] = nEdges;
+        sources = new int[nEdges];
+        targets = new int[nEdges];
+        kinds = new byte[nEdges];
+        inStarts = new int[nNodes + 1];
+        for (int e = 0; e < nEdges; ++e) {
+            ICFGEdge<Node> edge = edges.get(e);
+            sources[e] = nodeIndexes.get(edge.getSource());
+            targets[e] = nodeIndexes.get(edge.getTarget());
+            kinds[e] = kindOf(edge);
+            ++inStarts[targets[e] + 1];
+        }
+        // group edges by their targets
+        for (int i = 0; i < nNodes; ++i) {
+            inStarts[i + 1] += inStarts[i];
+        }
+        inEdges = new int[nEdges];
+        int[] next = new int[nNodes];
+        for (int e = 0; e < nEdges; ++e) {
+            int target = targets[e];
+            inEdges[inStarts[target] + next[target]++] = e;
+        }
+    }
+
+    private static byte kindOf(ICFGEdge<?> edge) {
+        if (edge instanceof CallEdge) {
+            return CALL;
+        } else if (edge instanceof ReturnEdge) {
+            return RETURN;
+        } else if (edge instanceof CallToReturnEdge) {
+            return CALL_TO_RETURN;
+        } else {
+            return NORMAL;
+        }
+    }
+
+    /**
+     * @return the number of nodes.
+     */
+    int getNumberOfNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the number of edges.
+     */
+    int getNumberOfEdges() {
+        return edges.size();
+    }
+
+    Node getNode(int node) {
+        return nodes.get(node);
+    }
+
+    int getIndex(Node node) {
+        return nodeIndexes.get(node);
+    }
+
+    boolean isEntryNode(int node) {
+        return entryNodes.get(node);
+    }
+
+    /**
+     * @return the numbers of the entry nodes of entry methods.
+     */
+    BitSet getEntryNodes() {
+        return entryNodes;
+    }
+
+    ICFGEdge<Node> getEdge(int edge) {
+        return edges.get(edge);
+    }
+
+    int getSource(int edge) {
+        return sources[edge];
+    }
+
+    int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    byte getKind(int edge) {
+        return kinds[edge];
+    }
+
+    /**
+     * @return true if the given edge is a call or return edge.
+     */
+    boolean isCrossMethod(int edge) {
+        return kinds[edge] >= CALL;
+    }
+
+    /**
+     * @return the position of the first in edge of the given node.
+     * @see #getInEdge(int)
+     */
+    int getInStart(int node) {
+        return inStarts[node];
+    }
+
+    /**
+     * @return the position after the last in edge of the given node.
+     */
+    int getInEnd(int node) {
+        return inStarts[node + 1];
+    }
+
+    /**
+     * @return the in edge at the given position.
+     */
+    int getInEdge(int pos) {
+        return inEdges[pos];
+    }
+
+    /**
+     * @return the first out edge of the given node.
+     */
+    int getOutStart(int node) {
+        return outStarts[node];
+    }
+
+    /**
+     * @return the edge after the last out edge of the given node.
+     */
+    int getOutEnd(int node) {
+        return outStarts[node + 1];
+    }
+}
@@ -26,6 +26,8 @@ import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.inter.ide.IDESolver;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.*;
@@ -35,25 +37,79 @@ import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.*;
 import pascal.taie.ir.stmt.*;
-import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Pair;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of interprocedural constant propagation for int values.
+ * <p>
+ * When option {@code ide} is enabled, the analysis is instead solved as
+ * an IDE problem (see {@link LinearConstantProblem}) by {@link IDESolver},
+ * which ignores heap accesses.
  */
 public class InterConstantPropagation extends
         AbstractInterDataflowAnalysis<JMethod, Stmt, CPFact> {
 
     public static final String ID = "inter-constprop";
 
+    /**
+     * Option for solving the analysis as an IDE problem.
+     */
+    private static final String IDE = "ide";
+
+    /**
+     * Maximum number of cached callee entry facts.
+     */
+    private static final int ENTRY_FACT_CACHE_SIZE = 4096;
+
     private final ConstantPropagation cp;
 
     private PointerAnalysisResult pta;
 
+    /**
+     * Field and array loads, whose facts are also affected by the abstract heap.
+     */
+    private List<Stmt> loads;
+
+    /**
+     * Heap locations accessed by each field/array load and store.
+     */
+    private Map<Stmt, Collection<?>> locations;
+
+    /**
+     * Maps each heap location to the loads that may read it.
+     */
+    private MultiMap<Object, Stmt> locationLoads;
+
+    /**
+     * Values stored to heap locations.
+     */
+    private AbstractHeap heap;
+
+    /**
+     * LRU cache of callee entry facts, keyed by callee and argument values,
+     * so that calls with identical arguments share one entry fact.
+     * The cached facts must not be modified. The cache is synchronized
+     * as it may be accessed by {@link ParallelInterSolver}.
+     */
+    private final Map<EntryFactKey, CPFact> entryFacts = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<EntryFactKey, CPFact> eldest) {
+                    return size() > ENTRY_FACT_CACHE_SIZE;
+                }
+            });
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
@@ -64,6 +120,93 @@ public class InterConstantPropagation extends
         String ptaId = getOptions().getString("pta");
         pta = World.get().getResult(ptaId);
         // You can do initialization work here
+        buildAliasIndex();
+    }
+
+    /**
+     * Builds the abstract heap and indexes field/array loads and stores
+     * by the abstract heap locations they access, i.e., static fields,
+     * instance fields of objects (Obj x JField) and array objects.
+     */
+    private void buildAliasIndex() {
+        loads = new ArrayList<>();
+        locations = Maps.newMap();
+        locationLoads = Maps.newMultiMap();
+        heap = new AbstractHeap(cp);
+        for (Stmt stmt : icfg) {
+            if (stmt instanceof LoadField || stmt instanceof LoadArray) {
+                loads.add(stmt);
+                Collection<?> locs = getLocations(stmt);
+                locations.put(stmt, locs);
+                locs.forEach(loc -> locationLoads.put(loc, stmt));
+            } else if (stmt instanceof StoreField || stmt instanceof StoreArray) {
+                locations.put(stmt, getLocations(stmt));
+            }
+        }
+    }
+
+    /**
+     * @return the abstract heap locations accessed by given field/array
+     * load or store.
+     */
+    private Collection<?> getLocations(Stmt stmt) {
+        if (stmt instanceof FieldStmt<?, ?> fieldStmt) {
+            JField field = fieldStmt.getFieldRef().resolve();
+            if (fieldStmt.isStatic()) {
+                return List.of(field);
+            }
+            Var base = ((InstanceFieldAccess) fieldStmt.getFieldAccess()).getBase();
+            return pta.getPointsToSet(base)
+                    .stream()
+                    .map(obj -> new Pair<>(obj, field))
+                    .toList();
+        } else {
+            ArrayAccess access = stmt instanceof LoadArray loadArray ?
+                    loadArray.getArrayAccess() :
+                    ((StoreArray) stmt).getArrayAccess();
+            return pta.getPointsToSet(access.getBase());
+        }
+    }
+
+    @Override
+    public Object analyze() {
+        if (getOptions().getBooleanOrDefault(IDE, false)) {
+            icfg = World.get().getResult(ICFGBuilder.ID);
+            return solveIDE();
+        }
+        return super.analyze();
+    }
+
+    /**
+     * Solves linear constant propagation by IDE solver, and converts
+     * the resulting values to {@link CPFact}s.
+     */
+    private DataflowResult<Stmt, CPFact> solveIDE() {
+        LinearConstantProblem problem = new LinearConstantProblem(icfg);
+        IDESolver<JMethod, Stmt, Var, Value> ideSolver =
+                new IDESolver<>(problem, icfg);
+        ideSolver.solve();
+        DataflowResult<Stmt, CPFact> result = new DataflowResult<>();
+        for (Stmt stmt : icfg) {
+            Map<Var, Value> values = ideSolver.getValuesAt(stmt);
+            CPFact in = new CPFact();
+            CPFact out = new CPFact();
+            values.forEach((var, value) -> {
+                if (var != LinearConstantProblem.ZERO) {
+                    in.update(var, value);
+                }
+                if (!icfg.isCallSite(stmt)) {
+                    problem.transferStmt(stmt, var).forEach((v, f) -> {
+                        if (v != LinearConstantProblem.ZERO) {
+                            out.update(v, cp.meetValue(out.get(v), f.computeTarget(value)));
+                        }
+                    });
+                }
+            });
+            result.setInFact(stmt, in);
+            result.setOutFact(stmt, icfg.isCallSite(stmt) ? in.copy() : out);
+        }
+        return result;
     }
 
     @Override
@@ -87,6 +230,11 @@ public class InterConstantPropagation extends
         cp.meetInto(fact, target);
     }
 
+    @Override
+    public Collection<Stmt> getExternalSeeds() {
+        return loads;
+    }
+
     @Override
     protected boolean transferCallNode(Stmt stmt, CPFact in, CPFact out) {
         // TODO - finish me
@@ -97,83 +245,44 @@ public class InterConstantPropagation extends
     @Override
     protected boolean transferNonCallNode(Stmt stmt, CPFact in, CPFact out) {
         // TODO - finish me
+        // x = T.f or x = y.f
         if (stmt instanceof LoadField loadField) {
-            // x = T.f
-            if (loadField.isStatic()) {
-                FieldAccess fieldAccess = loadField.getFieldAccess();
-                Value valueFromStaticField = Value.getUndef();
-                for (Stmt store : this.icfg) {
-                    if (store instanceof StoreField storeField &&
-                            storeField.isStatic() &&
-                            isAlias(fieldAccess, storeField.getFieldAccess())) {
-                        CPFact fact = this.solver.getResult().getOutFact(storeField);
-                        valueFromStaticField = cp.meetValue(valueFromStaticField, fact.get(storeField.getRValue()));
-                    }
-                }
-                CPFact temp = in.copy();
-                temp.update(loadField.getLValue(), valueFromStaticField);
-                return out.copyFrom(temp);
-            // x = y.f
-            } else {
-                FieldAccess fieldAccess = loadField.getFieldAccess();
-                Value valueFromInstanceField = Value.getUndef();
-                for (Stmt store : this.icfg) {
-                    if (store instanceof StoreField storeField &&
-                            !storeField.isStatic() &&
-                            isAlias(fieldAccess, storeField.getFieldAccess())) {
-                        CPFact fact = this.solver.getResult().getOutFact(storeField);
-                        valueFromInstanceField = cp.meetValue(valueFromInstanceField, fact.get(storeField.getRValue()));
-                    }
-                }
-                CPFact temp = in.copy();
-                temp.update(loadField.getLValue(), valueFromInstanceField);
-                return out.copyFrom(temp);
+            Value valueFromField = Value.getUndef();
+            for (Object loc : locations.get(loadField)) {
+                valueFromField = cp.meetValue(valueFromField, heap.loadField(loc));
             }
+            CPFact temp = in.copy();
+            temp.update(loadField.getLValue(), valueFromField);
+            return out.copyFrom(temp);
         }
         // x = a[i]
         if (stmt instanceof LoadArray loadArray) {
+            Value index = in.get(loadArray.getArrayAccess().getIndex());
             Value valueFromArray = Value.getUndef();
-            for (Stmt store : this.icfg) {
-                if (store instanceof StoreArray storeArray &&
-                        isAlias(loadArray, storeArray)) {
-                    CPFact fact = this.solver.getResult().getOutFact(storeArray);
-                    valueFromArray = cp.meetValue(valueFromArray, fact.get(storeArray.getRValue()));
-                }
+            for (Object array : locations.get(loadArray)) {
+                valueFromArray = cp.meetValue(valueFromArray,
+                        heap.loadArray((Obj) array, index));
             }
             CPFact temp = in.copy();
             temp.update(loadArray.getLValue(), valueFromArray);
             return out.copyFrom(temp);
         }
-
+        // T.f = x or y.f = x
         if (stmt instanceof StoreField storeField) {
-            // T.f = x
-            if (storeField.isStatic()) {
-                for (Stmt load : this.icfg) {
-                    if (load instanceof LoadField loadField &&
-                            loadField.isStatic() &&
-                            isAlias(loadField.getFieldAccess(), storeField.getFieldAccess())) {
-                        this.solver.addToWorkList(load);
-                    }
-                }
-            // y.f = x
-            } else {
-                FieldAccess fieldAccess = storeField.getFieldAccess();
-                for (Var var : pta.getVars()) {
-                    for (LoadField loadField : var.getLoadFields()) {
-                        if (isAlias(loadField.getFieldAccess(), fieldAccess)) {
-                            this.solver.addToWorkList(loadField);
-                        }
-                    }
+            Value value = in.get(storeField.getRValue());
+            for (Object loc : locations.get(storeField)) {
+                if (heap.storeField(loc, value)) {
+                    locationLoads.get(loc).forEach(solver::addToWorkList);
                 }
             }
         }
         // a[i] = x
         if (stmt instanceof StoreArray storeArray) {
-            for (Var var : pta.getVars()) {
-                for (LoadArray loadArray : var.getLoadArrays()) {
-                    if (isAlias(loadArray, storeArray)) {
-                        this.solver.addToWorkList(loadArray);
-                    }
+            Value index = in.get(storeArray.getArrayAccess().getIndex());
+            Value value = in.get(storeArray.getRValue());
+            for (Object array : locations.get(storeArray)) {
+                if (heap.storeArray((Obj) array, index, value)) {
+                    locationLoads.get(array).forEach(solver::addToWorkList);
                 }
             }
         }
@@ -201,6 +310,25 @@ public class InterConstantPropagation extends
         return fact;
     }
 
+    @Override
+    protected void meetNormalEdgeInto(NormalEdge<Stmt> edge, CPFact out, CPFact target) {
+        // identity edge: meet the OUT fact of the source directly
+        cp.meetInto(out, target);
+    }
+
+    @Override
+    protected void meetCallToReturnEdgeInto(
+            CallToReturnEdge<Stmt> edge, CPFact out, CPFact target) {
+        // meet the OUT fact of the call site except the result variable,
+        // which is defined by the return edges
+        Var result = ((Invoke) edge.getSource()).getResult();
+        for (Var var : out.keySet()) {
+            if (var != result) {
+                target.update(var, cp.meetValue(out.get(var), target.get(var)));
+            }
+        }
+    }
+
     @Override
     protected CPFact transferCallEdge(CallEdge<Stmt> edge, CPFact callSiteOut) {
         // TODO - finish me
@@ -208,12 +336,18 @@ public class InterConstantPropagation extends
 
         Invoke callSite = (Invoke) edge.getSource();
         JMethod callee = edge.getCallee();
-        CPFact fact = new CPFact();
-        for (int i = 0; i < callSite.getInvokeExp().getArgs().size(); ++i) {
-            Value argValue = callSiteOut.get(callSite.getInvokeExp().getArgs().get(i));
-            fact.update(callee.getIR().getParam(i), argValue);
+        List<Var> args = callSite.getInvokeExp().getArgs();
+        List<Value> argValues = new ArrayList<>(args.size());
+        for (Var arg : args) {
+            argValues.add(callSiteOut.get(arg));
         }
-        return fact;
+        return entryFacts.computeIfAbsent(new EntryFactKey(callee, argValues), key -> {
+            CPFact fact = new CPFact();
+            for (int i = 0; i < argValues.size(); ++i) {
+                fact.update(callee.getIR().getParam(i), argValues.get(i));
+            }
+            return fact;
+        });
     }
 
     @Override
@@ -234,47 +368,6 @@ public class InterConstantPropagation extends
         return fact;
     }
 
-    private boolean isAlias(Var var1, Var var2) {
-        Set<Obj> base1Pts = new HashSet<>(pta.getPointsToSet(var1));
-        Set<Obj> base2Pts = new HashSet<>(pta.getPointsToSet(var2));
-        base1Pts.retainAll(base2Pts);
-        return !base1Pts.isEmpty();
-    }
-
-    private boolean isAlias(FieldAccess access1, FieldAccess access2) {
-        JField field1 = access1.getFieldRef().resolve();
-        JField field2 = access2.getFieldRef().resolve();
-        if (!field1.equals(field2)) {
-            return false;
-        }
-        if (access1 instanceof InstanceFieldAccess ifa1) {
-            assert access2 instanceof InstanceFieldAccess;
-            InstanceFieldAccess ifa2 = (InstanceFieldAccess) access2;
-            return isAlias(ifa1.getBase(), ifa2.getBase());
-        }
-        assert access1.getFieldRef().isStatic();
-        assert access2.getFieldRef().isStatic();
-        JClass clazz1 = access1.getFieldRef().getDeclaringClass();
-        JClass clazz2 = access2.getFieldRef().getDeclaringClass();
-        return clazz1.equals(clazz2);
-    }
-
-    private boolean isAlias(LoadArray loadArray, StoreArray storeArray) {
-        ArrayAccess loadAccess = loadArray.getArrayAccess();
-        ArrayAccess storeAccess = storeArray.getArrayAccess();
-
-        Set<Obj> base1Pts = new HashSet<>(pta.getPointsToSet(loadAccess.getBase()));
-        Set<Obj> base2Pts = new HashSet<>(pta.getPointsToSet(storeAccess.getBase()));
-        base1Pts.retainAll(base2Pts);
-        if (base1Pts.isEmpty()) {
-            return false;
-        }
-        CPFact fact1 = this.solver.getResult().getInFact(loadArray);
-        CPFact fact2 = this.solver.getResult().getInFact(storeArray);
-        Value index1 = fact1.get(loadAccess.getIndex());
-        Value index2 = fact2.get(storeAccess.getIndex());
-        return index1.isNAC() && !index2.isUndef() ||
-                index2.isNAC() && !index1.isUndef() ||
-                index1.isConstant() && index2.isConstant() && index1.getConstant() == index2.getConstant();
+    private record EntryFactKey(JMethod callee, List<Value> argValues) {
     }
 }
@@ -24,6 +24,9 @@ package pascal.taie.analysis.dataflow.inter;
 
 import pascal.taie.analysis.graph.icfg.ICFGEdge;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Template interface for defining inter-procedural data-flow analysis.
  *
@@ -71,4 +74,26 @@ public interface InterDataflowAnalysis<Node, Fact> {
      * @return the result of edge transfer function.
      */
     Fact transferEdge(ICFGEdge<Node> edge, Fact out);
+
+    /**
+     * Applies the edge transfer function on {@code out}, and meets
+     * the result into {@code target}. The solver uses this function for
+     * edges whose transferred facts are not memoized, so analyses whose
+     * edge transfer functions are identity or only drop a few keys can
+     * override it to read {@code out} directly, without creating
+     * an intermediate fact.
+     */
+    default void meetEdgeInto(ICFGEdge<Node> edge, Fact out, Fact target) {
+        meetInto(transferEdge(edge, out), target);
+    }
+
+    /**
+     * @return the nodes whose facts may be changed by sources other than
+     * their incoming ICFG edges, e.g., field loads in alias-aware analysis.
+     * When the solver seeds its work-list on demand, these nodes are
+     * added to the work-list together with the entry nodes.
+     */
+    default Collection<Node> getExternalSeeds() {
+        return List.of();
+    }
 }
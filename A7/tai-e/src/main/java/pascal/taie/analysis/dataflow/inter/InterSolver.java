@@ -23,37 +23,70 @@
 package pascal.taie.analysis.dataflow.inter;
 
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.NodeResult;
 import pascal.taie.analysis.graph.icfg.ICFG;
-import pascal.taie.analysis.graph.icfg.ICFGEdge;
-import pascal.taie.util.collection.SetQueue;
 
-import java.util.Queue;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.BitSet;
 
 /**
  * Solver for inter-procedural data-flow analysis.
  * The workload of inter-procedural analysis is heavy, thus we always
  * adopt work-list algorithm for efficiency.
+ * <p>
+ * Before solving, the solver freezes the ICFG into a {@link CompactICFG},
+ * which numbers all nodes from 0 to N-1 and stores edges in primitive
+ * arrays, so that the work-list and the set of entry nodes of entry methods
+ * can be represented by bit sets, and the solver iterates edges of a node
+ * without allocation.
+ * <p>
+ * By default, the work-list is seeded with all ICFG nodes. In demand-seeded
+ * mode, it is seeded only with the entry nodes of entry methods and
+ * the external seeds given by the analysis, and then grows as facts flow:
+ * successors of a node are added when the OUT fact of the node changes
+ * or when the node is transferred for the first time. Nodes that are
+ * never reached in this way keep their initial facts.
+ * <p>
+ * Facts transferred along call edges are memoized per edge: they are
+ * computed when the call site changes, and the callee entry is added to
+ * the work-list only if the fact of some call edge actually changed.
+ * Thus, changes of caller facts that do not affect the arguments
+ * do not cause the callee to be processed again.
+ *
+ * @see ParallelInterSolver
  */
 class InterSolver<Method, Node, Fact> {
 
-    private final InterDataflowAnalysis<Node, Fact> analysis;
+    final InterDataflowAnalysis<Node, Fact> analysis;
+
+    final ICFG<Method, Node> icfg;
+
+    final boolean demandSeeded;
+
+    DataflowResult<Node, Fact> result;
 
-    private final ICFG<Method, Node> icfg;
+    /**
+     * Compact form of {@link #icfg}, built before solving.
+     */
+    CompactICFG<Method, Node> graph;
 
-    private DataflowResult<Node, Fact> result;
+    private NodeWorkList workList;
 
-    private Queue<Node> workList;
+    /**
+     * Facts most recently transferred along each call edge,
+     * indexed by edge numbers.
+     */
+    private Object[] callEdgeFacts;
 
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
-                ICFG<Method, Node> icfg) {
+                ICFG<Method, Node> icfg, boolean demandSeeded) {
         this.analysis = analysis;
         this.icfg = icfg;
+        this.demandSeeded = demandSeeded;
     }
 
     DataflowResult<Node, Fact> solve() {
         result = new DataflowResult<>();
+        graph = new CompactICFG<>(icfg);
         initialize();
         doSolve();
         return result;
@@ -61,55 +94,101 @@ class InterSolver<Method, Node, Fact> {
 
     private void initialize() {
         // TODO - finish me
-        for (Node node : icfg) {
+        for (int i = 0; i < graph.getNumberOfNodes(); ++i) {
+            Node node = graph.getNode(i);
             result.setOutFact(node, analysis.newInitialFact());
             result.setInFact(node, analysis.newInitialFact());
         }
-        for (Method method : icfg.entryMethods().toList()) {
-            Node methodEntry = icfg.getEntryOf(method);
+        BitSet entryNodes = graph.getEntryNodes();
+        for (int i = entryNodes.nextSetBit(0); i >= 0;
+             i = entryNodes.nextSetBit(i + 1)) {
+            Node methodEntry = graph.getNode(i);
             result.setOutFact(methodEntry, analysis.newBoundaryFact(methodEntry));
         }
     }
 
-    private void doSolve() {
+    void doSolve() {
         // TODO - finish me
-        workList = new SetQueue<>();
-        workList.addAll(icfg.getNodes());
+        int nNodes = graph.getNumberOfNodes();
+        workList = new NodeWorkList(nNodes);
+        callEdgeFacts = new Object[graph.getNumberOfEdges()];
+        // nodes that have been transferred, only tracked in demand-seeded mode
+        BitSet visited = null;
+        if (demandSeeded) {
+            visited = new BitSet(nNodes);
+            BitSet entryNodes = graph.getEntryNodes();
+            for (int i = entryNodes.nextSetBit(0); i >= 0;
+                 i = entryNodes.nextSetBit(i + 1)) {
+                workList.add(i);
+            }
+            analysis.getExternalSeeds().forEach(this::addToWorkList);
+        } else {
+            for (int i = 0; i < nNodes; ++i) {
+                workList.add(i);
+            }
+        }
         while (!workList.isEmpty()) {
-            Node node = workList.poll();
-
-            if (!isEntryMethodEntry(node)) {
-                for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
-                    analysis.meetInto(analysis.transferEdge(edge, result.getOutFact(edge.getSource())), result.getInFact(node));
+            int index = workList.poll();
+            Node node = graph.getNode(index);
+
+            if (!graph.isEntryNode(index)) {
+                Fact in = result.getInFact(node);
+                for (int pos = graph.getInStart(index), end = graph.getInEnd(index);
+                     pos < end; ++pos) {
+                    int edge = graph.getInEdge(pos);
+                    if (graph.getKind(edge) == CompactICFG.CALL) {
+                        analysis.meetInto(getCallEdgeFact(edge), in);
+                    } else {
+                        analysis.meetEdgeInto(graph.getEdge(edge),
+                                result.getOutFact(graph.getNode(graph.getSource(edge))), in);
+                    }
                 }
             }
 
-            if (analysis.transferNode(node, result.getInFact(node), result.getOutFact(node))) {
-                for (Node succ : icfg.getSuccsOf(node)) {
-                    if (!workList.contains(succ)) {
-                        workList.offer(succ);
+            boolean changed = analysis.transferNode(
+                    node, result.getInFact(node), result.getOutFact(node));
+            if (visited != null && !visited.get(index)) {
+                visited.set(index);
+                changed = true;
+            }
+            if (changed) {
+                for (int edge = graph.getOutStart(index), end = graph.getOutEnd(index);
+                     edge < end; ++edge) {
+                    if (graph.getKind(edge) != CompactICFG.CALL ||
+                            updateCallEdgeFact(edge)) {
+                        workList.add(graph.getTarget(edge));
                     }
                 }
             }
         }
     }
 
-    private boolean isEntryMethodEntry(Node node) {
-        for (Method method : icfg.entryMethods().toList()) {
-            if (icfg.getEntryOf(method).equals(node)) {
-                return true;
-            }
+    @SuppressWarnings("unchecked")
+    private Fact getCallEdgeFact(int callEdge) {
+        if (callEdgeFacts[callEdge] == null) {
+            updateCallEdgeFact(callEdge);
         }
-        return false;
+        return (Fact) callEdgeFacts[callEdge];
     }
 
-    public DataflowResult<Node, Fact> getResult() {
+    /**
+     * Transfers the OUT fact of the call site along the given call edge.
+     *
+     * @return true if the transferred fact differs from the memoized one.
+     */
+    private boolean updateCallEdgeFact(int callEdge) {
+        Fact fact = analysis.transferEdge(graph.getEdge(callEdge),
+                result.getOutFact(graph.getNode(graph.getSource(callEdge))));
+        Object oldFact = callEdgeFacts[callEdge];
+        callEdgeFacts[callEdge] = fact;
+        return !fact.equals(oldFact);
+    }
+
+    public NodeResult<Node, Fact> getResult() {
         return result;
     }
 
     public void addToWorkList(Node node) {
-        if (!workList.contains(node)) {
-            workList.offer(node);
-        }
+        workList.add(graph.getIndex(node));
     }
 }
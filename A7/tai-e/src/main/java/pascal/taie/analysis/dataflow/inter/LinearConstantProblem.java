@@ -0,0 +1,468 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.inter.ide.EdgeFunction;
+import pascal.taie.analysis.dataflow.inter.ide.IDEProblem;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.NegExp;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.PrimitiveType;
+import pascal.taie.util.collection.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IDE formulation of inter-procedural constant propagation for int values,
+ * i.e., linear constant propagation.
+ * <p>
+ * The data-flow facts are int variables (plus a special zero fact), and
+ * the edge functions are constant functions, linear functions of form
+ * {@code λx.a*x+b}, and point functions which result from meeting
+ * different linear functions and keep the constant on which the met
+ * functions agree. Heap accesses are not modeled, and the
+ * values of expressions that are not linear in one variable are
+ * generated from the zero fact, thus this analysis may be less precise
+ * than {@link InterConstantPropagation} on such expressions.
+ */
+class LinearConstantProblem implements IDEProblem<Stmt, Var, Value> {
+
+    /**
+     * The special zero fact, which holds at every reachable node.
+     */
+    static final Var ZERO = new Var(null, "<zero>", PrimitiveType.INT, -1);
+
+    private static final ConstantPropagation cp =
+            new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
+
+    private static final EdgeFunction<Value> ALL_TOP =
+            new ConstantFunction(Value.getUndef());
+
+    private static final EdgeFunction<Value> ALL_BOTTOM =
+            new ConstantFunction(Value.getNAC());
+
+    private static final EdgeFunction<Value> IDENTITY = new LinearFunction(1, 0);
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    LinearConstantProblem(ICFG<JMethod, Stmt> icfg) {
+        this.icfg = icfg;
+    }
+
+    @Override
+    public Map<Var, Value> getInitialSeeds(Stmt entry) {
+        Map<Var, Value> seeds = Maps.newHybridMap();
+        seeds.put(ZERO, Value.getNAC());
+        JMethod method = icfg.getContainingMethodOf(entry);
+        cp.newBoundaryFact(method.getIR().getResult(CFGBuilder.ID))
+                .forEach(seeds::put);
+        return seeds;
+    }
+
+    @Override
+    public Value getTopValue() {
+        return Value.getUndef();
+    }
+
+    @Override
+    public Value meetValue(Value v1, Value v2) {
+        return cp.meetValue(v1, v2);
+    }
+
+    @Override
+    public EdgeFunction<Value> getAllTop() {
+        return ALL_TOP;
+    }
+
+    @Override
+    public EdgeFunction<Value> getIdentity() {
+        return IDENTITY;
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferNormalEdge(
+            NormalEdge<Stmt> edge, Var fact) {
+        return transferStmt(edge.getSource(), fact);
+    }
+
+    /**
+     * Transfers the given fact through a non-call statement.
+     */
+    Map<Var, EdgeFunction<Value>> transferStmt(Stmt stmt, Var fact) {
+        if (!(stmt instanceof DefinitionStmt<?, ?> defStmt) ||
+                !(defStmt.getLValue() instanceof Var lhs) ||
+                !ConstantPropagation.canHoldInt(lhs)) {
+            return Map.of(fact, IDENTITY);
+        }
+        Map<Var, EdgeFunction<Value>> result = Maps.newHybridMap();
+        if (!fact.equals(lhs)) {
+            result.put(fact, IDENTITY);
+        }
+        EdgeFunction<Value> f = fact == ZERO ?
+                generate(defStmt.getRValue()) :
+                flow(defStmt.getRValue(), fact);
+        if (f != null) {
+            result.put(lhs, f);
+        }
+        return result;
+    }
+
+    /**
+     * @return the edge function from zero fact to the variable
+     * that is assigned by {@code rValue}, or null if the value of
+     * the variable is given by the flow from other variables.
+     */
+    private static EdgeFunction<Value> generate(RValue rValue) {
+        if (rValue instanceof IntLiteral literal) {
+            return new ConstantFunction(Value.makeConstant(literal.getValue()));
+        }
+        if (rValue instanceof Var var) {
+            return ConstantPropagation.canHoldInt(var) ? null : ALL_BOTTOM;
+        }
+        if (rValue instanceof NegExp negExp) {
+            return ConstantPropagation.canHoldInt(negExp.getOperand()) ?
+                    null : ALL_BOTTOM;
+        }
+        if (rValue instanceof BinaryExp binaryExp) {
+            Value c1 = getTempConstValue(binaryExp.getOperand1());
+            Value c2 = getTempConstValue(binaryExp.getOperand2());
+            if (c1 != null && c2 != null) {
+                CPFact in = new CPFact();
+                in.update(binaryExp.getOperand1(), c1);
+                in.update(binaryExp.getOperand2(), c2);
+                return new ConstantFunction(
+                        ConstantPropagation.evaluate(binaryExp, in));
+            }
+            return getLinearOperand(binaryExp) != null ? null : ALL_BOTTOM;
+        }
+        return ALL_BOTTOM;
+    }
+
+    /**
+     * @return the edge function from {@code fact} to the variable that is
+     * assigned by {@code rValue}, or null if there is no such flow.
+     */
+    private static EdgeFunction<Value> flow(RValue rValue, Var fact) {
+        if (rValue instanceof Var var) {
+            return var.equals(fact) && ConstantPropagation.canHoldInt(var) ?
+                    IDENTITY : null;
+        }
+        if (rValue instanceof NegExp negExp) {
+            return negExp.getOperand().equals(fact) &&
+                    ConstantPropagation.canHoldInt(fact) ?
+                    new LinearFunction(-1, 0) : null;
+        }
+        if (rValue instanceof BinaryExp binaryExp &&
+                fact.equals(getLinearOperand(binaryExp))) {
+            ArithmeticExp exp = (ArithmeticExp) binaryExp;
+            boolean factFirst = fact.equals(exp.getOperand1());
+            int c = (factFirst ? getTempConstValue(exp.getOperand2()) :
+                    getTempConstValue(exp.getOperand1())).getConstant();
+            return switch (exp.getOperator()) {
+                case ADD -> new LinearFunction(1, c);
+                case SUB -> factFirst ?
+                        new LinearFunction(1, -c) : new LinearFunction(-1, c);
+                case MUL -> new LinearFunction(c, 0);
+                default -> throw new AssertionError();
+            };
+        }
+        return null;
+    }
+
+    /**
+     * @return the variable that the given expression is linear in,
+     * i.e., the expression is y+c, c+y, y-c, c-y, y*c or c*y
+     * where y is an int variable and c is a constant; otherwise null.
+     */
+    private static Var getLinearOperand(BinaryExp exp) {
+        if (exp instanceof ArithmeticExp arithExp) {
+            switch (arithExp.getOperator()) {
+                case ADD, SUB, MUL -> {
+                    Var op1 = exp.getOperand1();
+                    Var op2 = exp.getOperand2();
+                    if (getTempConstValue(op1) == null &&
+                            getTempConstValue(op2) != null &&
+                            ConstantPropagation.canHoldInt(op1)) {
+                        return op1;
+                    }
+                    if (getTempConstValue(op1) != null &&
+                            getTempConstValue(op2) == null &&
+                            ConstantPropagation.canHoldInt(op2)) {
+                        return op2;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the constant held by the given temporary variable,
+     * or null if the variable does not hold an int constant.
+     */
+    private static Value getTempConstValue(Var var) {
+        if (var.isTempConst() &&
+                var.getTempConstValue() instanceof IntLiteral literal) {
+            return Value.makeConstant(literal.getValue());
+        }
+        return null;
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferCallToReturnEdge(
+            CallToReturnEdge<Stmt> edge, Var fact) {
+        Var result = ((Invoke) edge.getSource()).getResult();
+        return fact.equals(result) ? Map.of() : Map.of(fact, IDENTITY);
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferCallEdge(
+            CallEdge<Stmt> edge, Var fact) {
+        if (fact == ZERO) {
+            return Map.of(ZERO, IDENTITY);
+        }
+        Invoke callSite = (Invoke) edge.getSource();
+        List<Var> args = callSite.getInvokeExp().getArgs();
+        List<Var> params = edge.getCallee().getIR().getParams();
+        Map<Var, EdgeFunction<Value>> result = Maps.newHybridMap();
+        for (int i = 0; i < args.size(); ++i) {
+            if (args.get(i).equals(fact) &&
+                    ConstantPropagation.canHoldInt(params.get(i))) {
+                result.put(params.get(i), IDENTITY);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferReturnEdge(
+            ReturnEdge<Stmt> edge, Var fact) {
+        if (fact == ZERO) {
+            return Map.of(ZERO, IDENTITY);
+        }
+        Var result = ((Invoke) edge.getCallSite()).getResult();
+        if (result != null && ConstantPropagation.canHoldInt(result) &&
+                edge.getReturnVars().contains(fact)) {
+            return Map.of(result, IDENTITY);
+        }
+        return Map.of();
+    }
+
+    /**
+     * Meets two different functions, at least one of which is a linear
+     * or point function. Such a function maps NAC to NAC, and two such
+     * functions agree on at most one constant unless they are the same,
+     * thus the meet maps NAC and all but at most one constant to NAC,
+     * i.e., it is a point function.
+     */
+    private static EdgeFunction<Value> meetPointwise(
+            EdgeFunction<Value> f, EdgeFunction<Value> g) {
+        Value undef = cp.meetValue(f.computeTarget(Value.getUndef()),
+                g.computeTarget(Value.getUndef()));
+        Integer point = getCommonPoint(f, g);
+        Value pointValue = point == null ? Value.getNAC() :
+                cp.meetValue(f.computeTarget(Value.makeConstant(point)),
+                        g.computeTarget(Value.makeConstant(point)));
+        return makePointFunction(undef, point, pointValue);
+    }
+
+    /**
+     * @return the only constant that may be mapped to the same constant
+     * by given functions, or null if there is no such constant.
+     */
+    private static Integer getCommonPoint(
+            EdgeFunction<Value> f, EdgeFunction<Value> g) {
+        if (f instanceof PointFunction p) {
+            return p.getPoint();
+        }
+        if (g instanceof PointFunction p) {
+            return p.getPoint();
+        }
+        if (f instanceof LinearFunction l1 && g instanceof LinearFunction l2) {
+            // a1*x+b1 = a2*x+b2
+            return solve(l1.a - l2.a, l2.b - l1.b);
+        }
+        if (f instanceof LinearFunction l && g instanceof ConstantFunction c) {
+            return c.value.isConstant() ?
+                    solve(l.a, c.value.getConstant() - l.b) : null;
+        }
+        if (f instanceof ConstantFunction c && g instanceof LinearFunction l) {
+            return getCommonPoint(l, c);
+        }
+        return null;
+    }
+
+    /**
+     * @return x such that a*x = c, or null if there is no such int.
+     * The callers verify the solution by applying their functions to it.
+     */
+    private static Integer solve(int a, int c) {
+        return a != 0 && c % a == 0 ? c / a : null;
+    }
+
+    /**
+     * @return the point function that maps UNDEF to {@code undef}, and
+     * {@code point} to {@code pointValue} if the point is not null and the
+     * value is a constant.
+     */
+    private static EdgeFunction<Value> makePointFunction(
+            Value undef, Integer point, Value pointValue) {
+        if (point == null || !pointValue.isConstant()) {
+            return undef.isNAC() ? ALL_BOTTOM :
+                    new PointFunction(undef, 0, Value.getNAC());
+        }
+        return new PointFunction(undef, point, pointValue);
+    }
+
+    /**
+     * Edge function that maps every value to {@link #value}.
+     */
+    record ConstantFunction(Value value) implements EdgeFunction<Value> {
+
+        @Override
+        public Value computeTarget(Value source) {
+            return value;
+        }
+
+        @Override
+        public EdgeFunction<Value> composeWith(EdgeFunction<Value> second) {
+            return second instanceof ConstantFunction ? second :
+                    new ConstantFunction(second.computeTarget(value));
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (value.isUndef() || equals(other)) {
+                return other;
+            }
+            if (ALL_TOP.equals(other)) {
+                return this;
+            }
+            if (other instanceof ConstantFunction c) {
+                return new ConstantFunction(cp.meetValue(value, c.value));
+            }
+            return meetPointwise(this, other);
+        }
+    }
+
+    /**
+     * Edge function λx.a*x+b, which maps UNDEF and NAC to themselves.
+     */
+    record LinearFunction(int a, int b) implements EdgeFunction<Value> {
+
+        @Override
+        public Value computeTarget(Value source) {
+            return source.isConstant() ?
+                    Value.makeConstant(a * source.getConstant() + b) :
+                    source;
+        }
+
+        @Override
+        public EdgeFunction<Value> composeWith(EdgeFunction<Value> second) {
+            if (second instanceof LinearFunction g) {
+                return new LinearFunction(g.a * a, g.a * b + g.b);
+            }
+            if (second instanceof PointFunction g) {
+                Integer point = g.getPoint() == null ? null :
+                        solve(a, g.getPoint() - b);
+                return makePointFunction(g.undef, point, point == null ?
+                        Value.getNAC() :
+                        g.computeTarget(computeTarget(Value.makeConstant(point))));
+            }
+            return second;
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (equals(other) || ALL_TOP.equals(other)) {
+                return this;
+            }
+            return meetPointwise(this, other);
+        }
+    }
+
+    /**
+     * Edge function that maps UNDEF to {@link #undef}, constant
+     * {@link #point} to {@link #pointValue}, and the other values to NAC.
+     * It results from meeting different linear functions, e.g.,
+     * the meet of λx.x and λx.3 maps UNDEF and 3 to 3.
+     * If {@link #pointValue} is NAC, then no constant is mapped to
+     * a constant, and {@link #point} is 0.
+     */
+    record PointFunction(Value undef, int point, Value pointValue)
+            implements EdgeFunction<Value> {
+
+        /**
+         * @return the constant mapped to a constant, or null if absent.
+         */
+        private Integer getPoint() {
+            return pointValue.isConstant() ? point : null;
+        }
+
+        @Override
+        public Value computeTarget(Value source) {
+            if (source.isUndef()) {
+                return undef;
+            }
+            return source.isConstant() && source.getConstant() == point ?
+                    pointValue : Value.getNAC();
+        }
+
+        @Override
+        public EdgeFunction<Value> composeWith(EdgeFunction<Value> second) {
+            if (second instanceof ConstantFunction) {
+                return second;
+            }
+            // second maps NAC to NAC
+            return makePointFunction(second.computeTarget(undef),
+                    getPoint(), second.computeTarget(pointValue));
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (equals(other) || ALL_TOP.equals(other)) {
+                return this;
+            }
+            return meetPointwise(this, other);
+        }
+    }
+}
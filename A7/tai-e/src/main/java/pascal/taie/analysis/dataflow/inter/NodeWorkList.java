@@ -0,0 +1,104 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/**
+ * FIFO work-list of ICFG nodes, where each node is represented by
+ * its index assigned by {@link InterSolver}.
+ * <p>
+ * Membership of nodes is tracked by a bit set, so that checking and
+ * filtering duplicate nodes take constant time. As the work-list
+ * never holds a node twice, a ring buffer whose capacity equals
+ * the number of nodes suffices to hold all pending nodes.
+ */
+class NodeWorkList {
+
+    private final BitSet members;
+
+    private final int[] queue;
+
+    private int head = 0;
+
+    private int size = 0;
+
+    /**
+     * Creates an empty work-list for nodes indexed from 0 to
+     * {@code capacity - 1}.
+     */
+    NodeWorkList(int capacity) {
+        members = new BitSet(capacity);
+        queue = new int[capacity];
+    }
+
+    /**
+     * Adds a node to the tail of this work-list if it is not in the list.
+     *
+     * @return true if the node was added, otherwise false.
+     */
+    boolean add(int node) {
+        if (members.get(node)) {
+            return false;
+        }
+        members.set(node);
+        int tail = head + size;
+        queue[tail < queue.length ? tail : tail - queue.length] = node;
+        ++size;
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the head of this work-list.
+     *
+     * @throws NoSuchElementException if this work-list is empty
+     */
+    int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int node = queue[head];
+        if (++head == queue.length) {
+            head = 0;
+        }
+        --size;
+        members.clear(node);
+        return node;
+    }
+
+    /**
+     * @return true if the given node is in this work-list, otherwise false.
+     */
+    boolean contains(int node) {
+        return members.get(node);
+    }
+
+    /**
+     * @return true if this work-list is empty, otherwise false.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.fact.NodeResult;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel solver for inter-procedural data-flow analysis.
+ * <p>
+ * ICFG nodes are partitioned by their containing methods. Each partition
+ * owns the facts of its nodes and has its own work-list, and at any time
+ * it is drained by at most one worker. Facts along call and return edges,
+ * which cross methods, are transferred by the worker of the source
+ * partition and sent to the target partition via a lock-free mailbox.
+ * <p>
+ * While solving, the facts are owned by the workers of their partitions,
+ * thus they are not published, and {@link #getResult()} is unavailable
+ * until all workers are done, after which it exposes the facts read-only.
+ * Nodes added by {@link #addToWorkList(Object)} during a node transfer
+ * are scheduled after the OUT fact of that node has been computed.
+ * <p>
+ * For monotone analyses, the final result is the same fixed point
+ * as computed by {@link InterSolver}, regardless of thread scheduling.
+ */
+class ParallelInterSolver<Method, Node, Fact> extends InterSolver<Method, Node, Fact> {
+
+    /**
+     * Edge number of the messages that carry no fact.
+     */
+    private static final int NO_EDGE = -1;
+
+    private final int nThreads;
+
+    /**
+     * Partition of each node.
+     */
+    private List<Partition> partitionOf;
+
+    /**
+     * Index of each node in its partition.
+     */
+    private int[] localIndexOf;
+
+    private List<Partition> partitions;
+
+    /**
+     * Facts received along incoming call and return edges, indexed by
+     * edge numbers. Each entry is only accessed by the partition of
+     * the edge target.
+     */
+    private Object[] receivedFacts;
+
+    /**
+     * Facts sent along outgoing call and return edges, indexed by
+     * edge numbers. Each entry is only accessed by the partition of
+     * the edge source.
+     */
+    private Object[] sentFacts;
+
+    /**
+     * Whether the workers are solving, during which the facts are
+     * owned by the partitions.
+     */
+    private volatile boolean solving;
+
+    /**
+     * Nodes added to work-list during the current node transfer.
+     */
+    private final ThreadLocal<List<Node>> deferredNodes =
+            ThreadLocal.withInitial(ArrayList::new);
+
+    private ExecutorService executor;
+
+    /**
+     * Number of partitions that are scheduled, plus one while the solver
+     * is scheduling the initial partitions.
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    ParallelInterSolver(InterDataflowAnalysis<Node, Fact> analysis,
+                        ICFG<Method, Node> icfg, boolean demandSeeded,
+                        int nThreads) {
+        super(analysis, icfg, demandSeeded);
+        this.nThreads = nThreads;
+    }
+
+    @Override
+    void doSolve() {
+        partition();
+        receivedFacts = new Object[graph.getNumberOfEdges()];
+        sentFacts = new Object[graph.getNumberOfEdges()];
+        BitSet entryNodes = graph.getEntryNodes();
+        solving = true;
+        executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            active.set(1);
+            if (demandSeeded) {
+                for (int i = entryNodes.nextSetBit(0); i >= 0;
+                     i = entryNodes.nextSetBit(i + 1)) {
+                    post(i, NO_EDGE, null);
+                }
+                analysis.getExternalSeeds().forEach(node ->
+                        post(graph.getIndex(node), NO_EDGE, null));
+            } else {
+                for (int i = 0; i < graph.getNumberOfNodes(); ++i) {
+                    post(i, NO_EDGE, null);
+                }
+            }
+            deactivate();
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisException("Parallel solving is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new AnalysisException("Parallel solving failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            // completion of done orders the writes of all workers
+            // before the reads of the result
+            solving = false;
+        }
+    }
+
+    private void partition() {
+        Map<Method, Partition> methodPartitions = Maps.newMap();
+        partitions = new ArrayList<>();
+        int nNodes = graph.getNumberOfNodes();
+        partitionOf = new ArrayList<>(nNodes);
+        localIndexOf = new int[nNodes];
+        for (int i = 0; i < nNodes; ++i) {
+            Partition p = methodPartitions.computeIfAbsent(
+                    icfg.getContainingMethodOf(graph.getNode(i)), m -> {
+                        Partition newPartition = new Partition();
+                        partitions.add(newPartition);
+                        return newPartition;
+                    });
+            partitionOf.add(p);
+            localIndexOf[i] = p.nodes.size();
+            p.nodes.add(i);
+        }
+        partitions.forEach(Partition::initialize);
+    }
+
+    @Override
+    public NodeResult<Node, Fact> getResult() {
+        if (solving) {
+            throw new AnalysisException(
+                    "Facts of parallel solver are unavailable while solving");
+        }
+        return super.getResult();
+    }
+
+    @Override
+    public void addToWorkList(Node node) {
+        deferredNodes.get().add(node);
+    }
+
+    /**
+     * Sends a message to the partition of the given node, and schedules
+     * the partition. If {@code edge} is not {@link #NO_EDGE}, then
+     * {@code fact} is the fact transferred along the edge to the node.
+     */
+    private void post(int node, int edge, Fact fact) {
+        Partition p = partitionOf.get(node);
+        p.mailbox.add(new Message<>(node, edge, fact));
+        schedule(p);
+    }
+
+    private void schedule(Partition p) {
+        if (p.scheduled.compareAndSet(false, true)) {
+            active.incrementAndGet();
+            executor.execute(p);
+        }
+    }
+
+    private void deactivate() {
+        if (active.decrementAndGet() == 0) {
+            done.complete(null);
+        }
+    }
+
+    private record Message<Fact>(int node, int edge, Fact fact) {
+    }
+
+    /**
+     * Nodes of a method, together with their work-list and mailbox.
+     */
+    private class Partition implements Runnable {
+
+        /**
+         * Global indexes of the nodes in this partition.
+         */
+        private final List<Integer> nodes = new ArrayList<>();
+
+        private final Queue<Message<Fact>> mailbox = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private NodeWorkList workList;
+
+        /**
+         * Nodes that have been transferred, only tracked in demand-seeded mode.
+         */
+        private BitSet visited;
+
+        private void initialize() {
+            workList = new NodeWorkList(nodes.size());
+            if (demandSeeded) {
+                visited = new BitSet(nodes.size());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                do {
+                    drain();
+                } while (reschedule());
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            } finally {
+                deactivate();
+            }
+        }
+
+        /**
+         * @return true if this partition received new messages after
+         * it was drained, and it is scheduled again by this worker.
+         */
+        private boolean reschedule() {
+            scheduled.set(false);
+            return !mailbox.isEmpty() && scheduled.compareAndSet(false, true);
+        }
+
+        private void drain() {
+            Message<Fact> message;
+            while ((message = mailbox.poll()) != null) {
+                if (message.edge() != NO_EDGE) {
+                    receivedFacts[message.edge()] = message.fact();
+                }
+                workList.add(localIndexOf[message.node()]);
+            }
+            while (!workList.isEmpty()) {
+                int index = nodes.get(workList.poll());
+                transfer(index);
+                if (mailbox.peek() != null) {
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void transfer(int index) {
+            Node node = graph.getNode(index);
+            Fact in = result.getInFact(node);
+            Fact out = result.getOutFact(node);
+            if (!graph.isEntryNode(index)) {
+                for (int pos = graph.getInStart(index), end = graph.getInEnd(index);
+                     pos < end; ++pos) {
+                    int edge = graph.getInEdge(pos);
+                    if (graph.isCrossMethod(edge)) {
+                        Fact fact = (Fact) receivedFacts[edge];
+                        if (fact != null) {
+                            analysis.meetInto(fact, in);
+                        }
+                    } else {
+                        analysis.meetEdgeInto(graph.getEdge(edge),
+                                result.getOutFact(graph.getNode(graph.getSource(edge))), in);
+                    }
+                }
+            }
+            boolean changed = analysis.transferNode(node, in, out);
+            int localIndex = localIndexOf[index];
+            if (visited != null && !visited.get(localIndex)) {
+                visited.set(localIndex);
+                changed = true;
+            }
+            if (changed) {
+                for (int edge = graph.getOutStart(index), end = graph.getOutEnd(index);
+                     edge < end; ++edge) {
+                    int target = graph.getTarget(edge);
+                    if (graph.isCrossMethod(edge)) {
+                        Fact fact = analysis.transferEdge(graph.getEdge(edge), out);
+                        if (!fact.equals(sentFacts[edge])) {
+                            sentFacts[edge] = fact;
+                            post(target, edge, fact);
+                        }
+                    } else {
+                        workList.add(localIndexOf[target]);
+                    }
+                }
+            }
+            List<Node> deferred = deferredNodes.get();
+            if (!deferred.isEmpty()) {
+                deferred.forEach(n -> post(graph.getIndex(n), NO_EDGE, null));
+                deferred.clear();
+            }
+        }
+    }
+}
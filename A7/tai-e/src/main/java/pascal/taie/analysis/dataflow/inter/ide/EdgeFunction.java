@@ -0,0 +1,53 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter.ide;
+
+/**
+ * Represents edge functions of IDE problems, i.e., the environment
+ * transformers that map the value of a fact at the source of an
+ * exploded-supergraph edge to the value of a fact at its target.
+ * <p>
+ * The solver compares edge functions by {@link Object#equals(Object)},
+ * thus implementations should override it accordingly.
+ *
+ * @param <V> type of values
+ */
+public interface EdgeFunction<V> {
+
+    /**
+     * @return the value of target fact, given the value of source fact.
+     */
+    V computeTarget(V source);
+
+    /**
+     * @return the edge function that first applies this function,
+     * and then applies {@code second}.
+     */
+    EdgeFunction<V> composeWith(EdgeFunction<V> second);
+
+    /**
+     * @return the meet of this function and {@code other}.
+     */
+    EdgeFunction<V> meetWith(EdgeFunction<V> other);
+}
@@ -0,0 +1,85 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter.ide;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+
+import java.util.Map;
+
+/**
+ * Template interface for defining IDE (interprocedural distributive
+ * environment) problems, which are solved by {@link IDESolver}.
+ * <p>
+ * An IDE problem consists of flow functions on data-flow facts and
+ * edge functions on the values of the facts. Each edge transfer function
+ * in this interface gives both of them at once: it maps a fact at
+ * the source of an ICFG edge to the facts it flows to at the target,
+ * together with the edge functions of the flows. IFDS problems can be
+ * expressed as IDE problems over a two-point value lattice.
+ *
+ * @param <Node> type of ICFG nodes
+ * @param <D>    type of data-flow facts
+ * @param <V>    type of values of data-flow facts
+ */
+public interface IDEProblem<Node, D, V> {
+
+    /**
+     * @return the facts and their values that hold at the entry node
+     * of an entry method. The seeds must include the zero fact.
+     */
+    Map<D, V> getInitialSeeds(Node entry);
+
+    /**
+     * @return the top value of the value lattice.
+     */
+    V getTopValue();
+
+    /**
+     * Meets two values.
+     */
+    V meetValue(V v1, V v2);
+
+    /**
+     * @return the edge function that maps every value to top.
+     */
+    EdgeFunction<V> getAllTop();
+
+    /**
+     * @return the identity edge function.
+     */
+    EdgeFunction<V> getIdentity();
+
+    // ---------- transfer functions for specific ICFG edges ----------
+    Map<D, EdgeFunction<V>> transferNormalEdge(NormalEdge<Node> edge, D fact);
+
+    Map<D, EdgeFunction<V>> transferCallToReturnEdge(CallToReturnEdge<Node> edge, D fact);
+
+    Map<D, EdgeFunction<V>> transferCallEdge(CallEdge<Node> edge, D fact);
+
+    Map<D, EdgeFunction<V>> transferReturnEdge(ReturnEdge<Node> edge, D fact);
+    // ----------------------------------------------------------------
+}
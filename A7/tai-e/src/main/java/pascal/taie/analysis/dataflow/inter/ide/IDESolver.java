@@ -0,0 +1,338 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter.ide;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Tabulation solver for {@link IDEProblem}, following the algorithm of
+ * Sagiv, Reps and Horwitz, "Precise interprocedural dataflow analysis
+ * with applications to constant propagation".
+ * <p>
+ * Phase I computes jump functions along path edges of the exploded
+ * supergraph, and memoizes the end summary of each (callee entry, fact)
+ * pair, so that a summary computed for one call site is reused by all
+ * other call sites that reach the callee with the same fact. Only facts
+ * reachable from the initial seeds are explored.
+ * Phase II computes the values of facts at each node from the jump
+ * functions.
+ *
+ * @param <Method> type of ICFG methods
+ * @param <Node>   type of ICFG nodes
+ * @param <D>      type of data-flow facts
+ * @param <V>      type of values of data-flow facts
+ */
+public class IDESolver<Method, Node, D, V> {
+
+    private final IDEProblem<Node, D, V> problem;
+
+    private final ICFG<Method, Node> icfg;
+
+    /**
+     * Jump functions: node -> target fact -> source fact (at the entry
+     * of the containing method) -> edge function.
+     */
+    private final Map<Node, Map<D, Map<D, EdgeFunction<V>>>> jumpFns = Maps.newMap();
+
+    /**
+     * End summaries: callee entry -> fact at entry -> fact at exit
+     * -> edge function.
+     */
+    private final Map<Node, Map<D, Map<D, EdgeFunction<V>>>> endSummaries = Maps.newMap();
+
+    /**
+     * Incoming calls: callee entry -> fact at entry -> call edge
+     * -> facts at call site that flow to the fact at entry.
+     */
+    private final Map<Node, Map<D, MultiMap<CallEdge<Node>, D>>> incoming = Maps.newMap();
+
+    /**
+     * Return edges of exit nodes, grouped by their call sites.
+     */
+    private final Map<Node, MultiMap<Node, ReturnEdge<Node>>> returnEdges = Maps.newMap();
+
+    /**
+     * Call sites of each method.
+     */
+    private final MultiMap<Method, Node> callSites = Maps.newMultiMap();
+
+    /**
+     * Values of facts at each node.
+     */
+    private final Map<Node, Map<D, V>> values = Maps.newMap();
+
+    private final Queue<PathEdge<Node, D>> pathEdges = new ArrayDeque<>();
+
+    public IDESolver(IDEProblem<Node, D, V> problem, ICFG<Method, Node> icfg) {
+        this.problem = problem;
+        this.icfg = icfg;
+    }
+
+    public void solve() {
+        computeJumpFunctions();
+        computeValues();
+    }
+
+    /**
+     * @return the facts and their values that hold at the given node
+     * (before the node is executed). Facts whose values are top
+     * are absent.
+     */
+    public Map<D, V> getValuesAt(Node node) {
+        return Collections.unmodifiableMap(
+                values.getOrDefault(node, Map.of()));
+    }
+
+    // ---------- Phase I: computing jump functions ----------
+    private void computeJumpFunctions() {
+        icfg.entryMethods().forEach(method -> {
+            Node entry = icfg.getEntryOf(method);
+            for (D seed : problem.getInitialSeeds(entry).keySet()) {
+                propagate(seed, entry, seed, problem.getIdentity());
+            }
+        });
+        while (!pathEdges.isEmpty()) {
+            PathEdge<Node, D> pathEdge = pathEdges.poll();
+            D source = pathEdge.source();
+            Node node = pathEdge.node();
+            D target = pathEdge.target();
+            EdgeFunction<V> f = getJumpFunction(source, node, target);
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                if (edge instanceof NormalEdge<Node> normalEdge) {
+                    problem.transferNormalEdge(normalEdge, target).forEach((d, f2) ->
+                            propagate(source, edge.getTarget(), d, f.composeWith(f2)));
+                } else if (edge instanceof CallToReturnEdge<Node> c2rEdge) {
+                    problem.transferCallToReturnEdge(c2rEdge, target).forEach((d, f2) ->
+                            propagate(source, edge.getTarget(), d, f.composeWith(f2)));
+                } else if (edge instanceof CallEdge<Node> callEdge) {
+                    processCall(source, callEdge, target, f);
+                }
+            }
+            if (node.equals(icfg.getExitOf(icfg.getContainingMethodOf(node)))) {
+                processExit(source, node, target, f);
+            }
+        }
+    }
+
+    /**
+     * Processes path edge (source, call site) -> (target, call site)
+     * along the given call edge.
+     */
+    private void processCall(D source, CallEdge<Node> callEdge,
+                             D target, EdgeFunction<V> f) {
+        Node callSite = callEdge.getSource();
+        Node calleeEntry = callEdge.getTarget();
+        Node calleeExit = icfg.getExitOf(icfg.getContainingMethodOf(calleeEntry));
+        problem.transferCallEdge(callEdge, target).forEach((d, callFn) -> {
+            propagate(d, calleeEntry, d, problem.getIdentity());
+            incoming.computeIfAbsent(calleeEntry, __ -> Maps.newMap())
+                    .computeIfAbsent(d, __ -> Maps.newMultiMap())
+                    .put(callEdge, target);
+            // apply existing end summaries of the callee
+            getEndSummaries(calleeEntry, d).forEach((exitFact, sumFn) -> {
+                for (ReturnEdge<Node> retEdge : getReturnEdges(calleeExit, callSite)) {
+                    problem.transferReturnEdge(retEdge, exitFact).forEach((d2, retFn) ->
+                            propagate(source, retEdge.getTarget(), d2, f.composeWith(callFn)
+                                    .composeWith(sumFn).composeWith(retFn)));
+                }
+            });
+        });
+    }
+
+    /**
+     * Processes path edge (source, entry) -> (target, exit), which forms
+     * an end summary of the method, and propagates the summary
+     * to the return sites of all known callers.
+     */
+    private void processExit(D source, Node exit,
+                             D target, EdgeFunction<V> f) {
+        Node entry = icfg.getEntryOf(icfg.getContainingMethodOf(exit));
+        endSummaries.computeIfAbsent(entry, __ -> Maps.newMap())
+                .computeIfAbsent(source, __ -> Maps.newMap())
+                .put(target, f);
+        MultiMap<CallEdge<Node>, D> callers = incoming
+                .getOrDefault(entry, Map.of())
+                .get(source);
+        if (callers == null) {
+            return;
+        }
+        callers.forEach((callEdge, callSiteFact) -> {
+            Node callSite = callEdge.getSource();
+            EdgeFunction<V> callFn = problem
+                    .transferCallEdge(callEdge, callSiteFact).get(source);
+            for (ReturnEdge<Node> retEdge : getReturnEdges(exit, callSite)) {
+                problem.transferReturnEdge(retEdge, target).forEach((d, retFn) -> {
+                    EdgeFunction<V> sumFn = callFn.composeWith(f).composeWith(retFn);
+                    getJumpFunctions(callSite, callSiteFact).forEach((callerSource, callerFn) ->
+                            propagate(callerSource, retEdge.getTarget(), d,
+                                    callerFn.composeWith(sumFn)));
+                });
+            }
+        });
+    }
+
+    private void propagate(D source, Node node, D target, EdgeFunction<V> f) {
+        Map<D, EdgeFunction<V>> fns = jumpFns
+                .computeIfAbsent(node, __ -> Maps.newMap())
+                .computeIfAbsent(target, __ -> Maps.newHybridMap());
+        EdgeFunction<V> oldFn = fns.getOrDefault(source, problem.getAllTop());
+        EdgeFunction<V> newFn = oldFn.meetWith(f);
+        if (!newFn.equals(oldFn)) {
+            fns.put(source, newFn);
+            pathEdges.add(new PathEdge<>(source, node, target));
+        }
+    }
+
+    private EdgeFunction<V> getJumpFunction(D source, Node node, D target) {
+        return getJumpFunctions(node, target)
+                .getOrDefault(source, problem.getAllTop());
+    }
+
+    /**
+     * @return the jump functions to given fact at given node,
+     * keyed by the source facts.
+     */
+    private Map<D, EdgeFunction<V>> getJumpFunctions(Node node, D target) {
+        return jumpFns.getOrDefault(node, Map.of())
+                .getOrDefault(target, Map.of());
+    }
+
+    private Map<D, EdgeFunction<V>> getEndSummaries(Node entry, D source) {
+        return endSummaries.getOrDefault(entry, Map.of())
+                .getOrDefault(source, Map.of());
+    }
+
+    private Set<ReturnEdge<Node>> getReturnEdges(Node exit, Node callSite) {
+        return returnEdges.computeIfAbsent(exit, e -> {
+            MultiMap<Node, ReturnEdge<Node>> edges = Maps.newMultiMap();
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(e)) {
+                if (edge instanceof ReturnEdge<Node> retEdge) {
+                    edges.put(retEdge.getCallSite(), retEdge);
+                }
+            }
+            return edges;
+        }).get(callSite);
+    }
+
+    // ---------- Phase II: computing values ----------
+    private void computeValues() {
+        for (Node node : icfg) {
+            if (icfg.isCallSite(node)) {
+                callSites.put(icfg.getContainingMethodOf(node), node);
+            }
+        }
+        // Phase II(i): computes values at entry nodes and call sites
+        Queue<NodeFact<Node, D>> workList = new ArrayDeque<>();
+        icfg.entryMethods().forEach(method -> {
+            Node entry = icfg.getEntryOf(method);
+            problem.getInitialSeeds(entry).forEach((seed, value) ->
+                    propagateValue(entry, seed, value, workList));
+        });
+        while (!workList.isEmpty()) {
+            NodeFact<Node, D> nodeFact = workList.poll();
+            Node node = nodeFact.node();
+            D fact = nodeFact.fact();
+            V value = getValue(node, fact);
+            Method method = icfg.getContainingMethodOf(node);
+            if (node.equals(icfg.getEntryOf(method))) {
+                for (Node callSite : callSites.get(method)) {
+                    jumpFns.getOrDefault(callSite, Map.of()).forEach((d, fns) -> {
+                        EdgeFunction<V> f = fns.get(fact);
+                        if (f != null) {
+                            propagateValue(callSite, d, f.computeTarget(value), workList);
+                        }
+                    });
+                }
+            }
+            if (icfg.isCallSite(node)) {
+                for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                    if (edge instanceof CallEdge<Node> callEdge) {
+                        problem.transferCallEdge(callEdge, fact).forEach((d, f) ->
+                                propagateValue(edge.getTarget(), d,
+                                        f.computeTarget(value), workList));
+                    }
+                }
+            }
+        }
+        // Phase II(ii): computes values at the other nodes
+        for (Node node : icfg) {
+            Node entry = icfg.getEntryOf(icfg.getContainingMethodOf(node));
+            if (node.equals(entry) || icfg.isCallSite(node)) {
+                continue;
+            }
+            jumpFns.getOrDefault(node, Map.of()).forEach((d, fns) ->
+                    fns.forEach((source, f) -> {
+                        V value = f.computeTarget(getValue(entry, source));
+                        setValue(node, d, problem.meetValue(getValue(node, d), value));
+                    }));
+        }
+    }
+
+    private void propagateValue(Node node, D fact, V value,
+                                Queue<NodeFact<Node, D>> workList) {
+        V oldValue = getValue(node, fact);
+        V newValue = problem.meetValue(oldValue, value);
+        if (!newValue.equals(oldValue)) {
+            setValue(node, fact, newValue);
+            workList.add(new NodeFact<>(node, fact));
+        }
+    }
+
+    private V getValue(Node node, D fact) {
+        return values.getOrDefault(node, Map.of())
+                .getOrDefault(fact, problem.getTopValue());
+    }
+
+    private void setValue(Node node, D fact, V value) {
+        Map<D, V> facts = values.computeIfAbsent(node, __ -> Maps.newHybridMap());
+        if (value.equals(problem.getTopValue())) {
+            facts.remove(fact);
+        } else {
+            facts.put(fact, value);
+        }
+    }
+
+    /**
+     * Represents path edge (source, entry) -> (target, node)
+     * in the exploded supergraph.
+     */
+    private record PathEdge<Node, D>(D source, Node node, D target) {
+    }
+
+    private record NodeFact<Node, D>(Node node, D fact) {
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta;
+
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphs;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InvokeInstanceExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Demand-driven context-insensitive points-to analysis.
+ * <p>
+ * The analysis answers the points-to set of a variable by exploring only
+ * the part of the pointer assignment graph (PAG) the variable depends on,
+ * i.e., CFL-reachability from allocations to the variable, where a store
+ * {@code b.f = y} and a load {@code x = b'.f} match like a pair of
+ * parentheses only if {@code b} and {@code b'} may point to the same object.
+ * The PAG is built lazily: the definitions of a variable are indexed
+ * when its method is first queried, its callers and callees are looked up
+ * in given call graph, and the stores of the program are indexed by
+ * fields when a load is first explored. Field matches are resolved by
+ * querying the bases of the loads and stores on demand as well.
+ * <p>
+ * Each node records its dependencies, i.e., the nodes whose objects flow
+ * to it or add edges to it. A query only explores and propagates the
+ * nodes that the queried node transitively depends on, and it completes
+ * once they have no pending work. The objects propagated to the other
+ * nodes stay pending until a later query depends on them. The nodes of
+ * a completed query are solved, and later queries reuse them as they are.
+ * <p>
+ * Each query has a budget of propagation steps. If a query runs out of
+ * its budget, its pending work is kept for later queries, and the given
+ * fallback, e.g., an exhaustive result, answers the query.
+ * <p>
+ * The analysis follows the same rules as the exhaustive context-insensitive
+ * solvers, thus a completed query gives the context-insensitive result on
+ * given call graph. The service is thread-safe, as the queries are
+ * synchronized.
+ */
+public class DemandPointsTo {
+
+    /**
+     * Default budget of propagation steps of a query.
+     */
+    private static final int DEFAULT_BUDGET = 100_000;
+
+    /**
+     * Key of array elements in the field nodes.
+     */
+    private static final Object ARRAY_ELEMENTS = "[*]";
+
+    private final CallGraph<Invoke, JMethod> callGraph;
+
+    private final Function<New, Obj> objs;
+
+    private final Function<Var, Set<Obj>> fallback;
+
+    private final int budget;
+
+    /**
+     * Nodes of the explored part of the PAG, keyed by variables,
+     * static fields and (object, field) pairs.
+     */
+    private final Map<Object, Node> nodes = Maps.newMap();
+
+    /**
+     * Definitions of the variables in the indexed methods.
+     */
+    private final Map<JMethod, MultiMap<Var, Stmt>> definitions = Maps.newMap();
+
+    /**
+     * Stores of the program, keyed by fields and {@link #ARRAY_ELEMENTS},
+     * built on demand.
+     */
+    private MultiMap<Object, Stmt> stores;
+
+    /**
+     * Fields (and {@link #ARRAY_ELEMENTS}) whose stores have been explored.
+     */
+    private final Set<Object> exploredFields = Sets.newSet();
+
+    /**
+     * Number of the current query, which marks the nodes it depends on.
+     */
+    private int query;
+
+    /**
+     * Nodes the current query depends on.
+     */
+    private final List<Node> queryNodes = new ArrayList<>();
+
+    /**
+     * Nodes the current query depends on that have pending work.
+     */
+    private final Queue<Node> workList = new ArrayDeque<>();
+
+    /**
+     * @param callGraph call graph that connects arguments to parameters,
+     *                  and return variables to the results of calls.
+     * @param objs      abstract objects of allocation sites. It should give
+     *                  the same objects as {@code fallback}, e.g., by looking
+     *                  up the objects of the exhaustive result, including
+     *                  the sites represented by merged objects, or null
+     *                  for the sites to be ignored.
+     * @param fallback  points-to sets of the queries that run out of budget.
+     *                  It is only applied to such queries, thus it may
+     *                  compute the exhaustive result lazily.
+     */
+    public DemandPointsTo(CallGraph<Invoke, JMethod> callGraph,
+                          Function<New, Obj> objs,
+                          Function<Var, Set<Obj>> fallback) {
+        this(callGraph, objs, fallback, DEFAULT_BUDGET);
+    }
+
+    public DemandPointsTo(CallGraph<Invoke, JMethod> callGraph,
+                          Function<New, Obj> objs,
+                          Function<Var, Set<Obj>> fallback,
+                          int budget) {
+        this.callGraph = callGraph;
+        this.objs = objs;
+        this.fallback = fallback;
+        this.budget = budget;
+    }
+
+    /**
+     * @return the objects that given variable may point to. The returned
+     * set must not be modified.
+     */
+    public synchronized Set<Obj> getPointsToSet(Var var) {
+        Node node = getVarNode(var);
+        ++query;
+        queryNodes.clear();
+        addDependencies(node);
+        if (solve()) {
+            queryNodes.forEach(n -> n.solved = true);
+            return Collections.unmodifiableSet(node.pts);
+        } else {
+            // the pending work stays in the nodes for later queries
+            workList.forEach(n -> n.inWorkList = false);
+            workList.clear();
+            return fallback.apply(var);
+        }
+    }
+
+    /**
+     * Explores the nodes the current query depends on, and propagates
+     * their pending objects, until no work is left, or the budget
+     * of the query runs out.
+     *
+     * @return true if no work is left, otherwise false.
+     */
+    private boolean solve() {
+        int steps = 0;
+        while (!workList.isEmpty()) {
+            if (steps >= budget) {
+                return false;
+            }
+            Node node = workList.poll();
+            node.inWorkList = false;
+            if (!node.explored) {
+                node.explored = true;
+                explore(node);
+                ++steps;
+            }
+            if (!node.pending.isEmpty()) {
+                List<Obj> pending = List.copyOf(node.pending);
+                node.pending.clear();
+                for (Obj obj : pending) {
+                    if (node.pts.add(obj)) {
+                        node.succs.forEach(succ -> addObject(succ, obj));
+                        List.copyOf(node.triggers).forEach(trigger -> trigger.accept(obj));
+                    }
+                }
+                steps += pending.size();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks given node and the nodes it transitively depends on
+     * as dependencies of the current query, except the solved ones,
+     * and adds those with pending work to the work list.
+     */
+    private void addDependencies(Node node) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            if (n.solved || n.query == query) {
+                continue;
+            }
+            n.query = query;
+            queryNodes.add(n);
+            if (!n.explored || !n.pending.isEmpty()) {
+                addToWorkList(n);
+            }
+            n.deps.forEach(stack::push);
+        }
+    }
+
+    /**
+     * Records that objects of {@code source} may flow to {@code target},
+     * or add edges to {@code target}.
+     */
+    private void addDependency(Node source, Node target) {
+        if (target.deps.add(source) && target.query == query) {
+            addDependencies(source);
+        }
+    }
+
+    private void addToWorkList(Node node) {
+        if (!node.inWorkList) {
+            node.inWorkList = true;
+            workList.add(node);
+        }
+    }
+
+    /**
+     * Adds an object to the pending objects of given node. The node is
+     * only processed if the current query or a later one depends on it.
+     */
+    private void addObject(Node node, Obj obj) {
+        if (!node.pts.contains(obj) && node.pending.add(obj) &&
+                node.query == query) {
+            addToWorkList(node);
+        }
+    }
+
+    /**
+     * Explores the in-edges and the dependencies of given node.
+     */
+    private void explore(Node node) {
+        if (node.key instanceof Var var) {
+            exploreVar(node, var);
+        } else if (node.key instanceof JField field) {
+            exploreStaticField(node, field);
+        } else {
+            exploreInstanceField(node, ((Pair<?, ?>) node.key).second());
+        }
+    }
+
+    /**
+     * Explores the in-edges of the node of given variable,
+     * i.e., the assignments to the variable.
+     */
+    private void exploreVar(Node node, Var var) {
+        JMethod method = var.getMethod();
+        IR ir = method.getIR();
+        for (Stmt stmt : getDefinitions(method).get(var)) {
+            if (stmt instanceof New newStmt) {
+                Obj obj = objs.apply(newStmt);
+                if (obj != null) {
+                    addObject(node, obj);
+                }
+            } else if (stmt instanceof Copy copy) {
+                addEdge(getVarNode(copy.getRValue()), node);
+            } else if (stmt instanceof LoadField load) {
+                JField field = load.getFieldRef().resolve();
+                if (load.getFieldAccess() instanceof InstanceFieldAccess access) {
+                    exploreLoad(access.getBase(), field, node);
+                } else {
+                    addEdge(getNode(field), node);
+                }
+            } else if (stmt instanceof LoadArray load) {
+                exploreLoad(load.getArrayAccess().getBase(), ARRAY_ELEMENTS, node);
+            } else if (stmt instanceof Invoke invoke) {
+                for (JMethod callee : callGraph.getCalleesOf(invoke)) {
+                    for (Var ret : callee.getIR().getReturnVars()) {
+                        addEdge(getVarNode(ret), node);
+                    }
+                }
+            }
+        }
+        int index = ir.getParams().indexOf(var);
+        if (index >= 0) {
+            for (Invoke invoke : callGraph.getCallersOf(method)) {
+                addEdge(getVarNode(invoke.getInvokeExp().getArg(index)), node);
+            }
+        }
+        if (var.equals(ir.getThis())) {
+            for (Invoke invoke : callGraph.getCallersOf(method)) {
+                if (invoke.getInvokeExp() instanceof InvokeInstanceExp invokeExp) {
+                    // only the receiver objects dispatched to this method
+                    Node base = getVarNode(invokeExp.getBase());
+                    addDependency(base, node);
+                    addTrigger(base, obj -> {
+                        if (method.equals(CallGraphs.resolveCallee(obj.getType(), invoke))) {
+                            addObject(node, obj);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Explores load {@code target = base.field}. The objects stored into
+     * the field of each object pointed to by the base flow to the target.
+     */
+    private void exploreLoad(Var base, Object field, Node target) {
+        exploreStores(field);
+        Node baseNode = getVarNode(base);
+        addDependency(baseNode, target);
+        addTrigger(baseNode, obj -> addEdge(getNode(new Pair<>(obj, field)), target));
+    }
+
+    /**
+     * Explores the stores into given field of all objects,
+     * i.e., connects each store {@code base.field = from} to the field
+     * node of each object pointed to by the base.
+     */
+    private void exploreStores(Object field) {
+        if (exploredFields.add(field)) {
+            for (Stmt stmt : getStores().get(field)) {
+                Node source = getVarNode(getStoredVar(stmt));
+                addTrigger(getVarNode(getStoreBase(stmt)),
+                        obj -> addEdge(source, getNode(new Pair<>(obj, field))));
+            }
+        }
+    }
+
+    /**
+     * Explores the node of a field of an object, which depends on
+     * the bases of the stores into the field, as the stores are connected
+     * to the node when their bases point to the object.
+     */
+    private void exploreInstanceField(Node node, Object field) {
+        for (Stmt stmt : getStores().get(field)) {
+            addDependency(getVarNode(getStoreBase(stmt)), node);
+        }
+    }
+
+    private void exploreStaticField(Node node, JField field) {
+        for (Stmt stmt : getStores().get(field)) {
+            if (stmt instanceof StoreField store && store.isStatic()) {
+                addEdge(getVarNode(store.getRValue()), node);
+            }
+        }
+    }
+
+    private static Var getStoreBase(Stmt stmt) {
+        return stmt instanceof StoreField store ?
+                ((InstanceFieldAccess) store.getFieldAccess()).getBase() :
+                ((StoreArray) stmt).getArrayAccess().getBase();
+    }
+
+    private static Var getStoredVar(Stmt stmt) {
+        return stmt instanceof StoreField store ?
+                store.getRValue() : ((StoreArray) stmt).getRValue();
+    }
+
+    private Node getVarNode(Var var) {
+        return getNode(var);
+    }
+
+    /**
+     * @return the node of given key. A new node is explored when
+     * a query first depends on it.
+     */
+    private Node getNode(Object key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            node = new Node(key);
+            nodes.put(key, node);
+        }
+        return node;
+    }
+
+    private void addEdge(Node source, Node target) {
+        if (source.succs.add(target)) {
+            addDependency(source, target);
+            source.pts.forEach(obj -> addObject(target, obj));
+        }
+    }
+
+    /**
+     * Adds a trigger on the objects pointed to by given node,
+     * which is applied to both its current and future objects.
+     */
+    private void addTrigger(Node node, Consumer<Obj> trigger) {
+        node.triggers.add(trigger);
+        List.copyOf(node.pts).forEach(trigger);
+    }
+
+    private MultiMap<Var, Stmt> getDefinitions(JMethod method) {
+        return definitions.computeIfAbsent(method, m -> {
+            MultiMap<Var, Stmt> defs = Maps.newMultiMap();
+            for (Stmt stmt : m.getIR().getStmts()) {
+                if (stmt instanceof New || stmt instanceof Copy ||
+                        stmt instanceof LoadField || stmt instanceof LoadArray ||
+                        stmt instanceof Invoke) {
+                    stmt.getDef().ifPresent(def -> {
+                        if (def instanceof Var var) {
+                            defs.put(var, stmt);
+                        }
+                    });
+                }
+            }
+            return defs;
+        });
+    }
+
+    /**
+     * @return the stores of the reachable methods, keyed by fields
+     * and {@link #ARRAY_ELEMENTS}.
+     */
+    private MultiMap<Object, Stmt> getStores() {
+        if (stores == null) {
+            stores = Maps.newMultiMap();
+            callGraph.reachableMethods().forEach(method -> {
+                for (Stmt stmt : method.getIR().getStmts()) {
+                    if (stmt instanceof StoreField store) {
+                        stores.put(store.getFieldRef().resolve(), store);
+                    } else if (stmt instanceof StoreArray store) {
+                        stores.put(ARRAY_ELEMENTS, store);
+                    }
+                }
+            });
+        }
+        return stores;
+    }
+
+    /**
+     * Node of the PAG, i.e., a variable, a static field,
+     * or a field of an object.
+     */
+    private static class Node {
+
+        private final Object key;
+
+        private final Set<Obj> pts = Sets.newHybridSet();
+
+        /**
+         * Objects that flow to this node and have not been propagated.
+         */
+        private final Set<Obj> pending = Sets.newHybridSet();
+
+        private final Set<Node> succs = Sets.newHybridSet();
+
+        /**
+         * Nodes whose objects flow to this node or add edges to it.
+         */
+        private final Set<Node> deps = Sets.newHybridSet();
+
+        private final List<Consumer<Obj>> triggers = new ArrayList<>();
+
+        /**
+         * Whether the in-edges and dependencies of this node are explored.
+         */
+        private boolean explored;
+
+        /**
+         * Whether the points-to set of this node is complete.
+         */
+        private boolean solved;
+
+        private boolean inWorkList;
+
+        /**
+         * Number of the last query that depends on this node.
+         */
+        private int query;
+
+        private Node(Object key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta;
+
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.MergedObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Pair;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of pointer analysis results in a single file, which is
+ * memory-mapped when read, so that consumers load no data eagerly and
+ * processes reading the same snapshot share one copy in the page cache.
+ * <p>
+ * A snapshot holds the context-insensitive results: the points-to sets
+ * of variables, static fields, instance fields and array indexes, the
+ * objects, and the call graph. Program elements are identified by
+ * signatures (methods and fields) and by indexes in the IR of their
+ * methods (variables, call sites and allocation sites), thus a snapshot
+ * can be read in any process that builds the same program. To detect
+ * snapshots of other programs, the numbers of variables and statements
+ * of each method are recorded and checked when the method is resolved.
+ * An object merged by the heap model records the allocation sites of
+ * the objects it represents, which are rebuilt when it is read.
+ * The file consists of a header with the offsets of the sections below;
+ * all ints are big-endian.
+ * <pre>
+ * STRINGS          n, n x (offset, length), UTF-8 bytes
+ * METHODS          n, n x (signature, #variables, #statements)
+ * FIELDS           n, n x signature
+ * VARS             n, n x (method, index, pts offset, pts size), sorted
+ * OBJECTS          n, n x (description, type, allocation method,
+ *                  allocation index, container method, container type,
+ *                  represented sites offset, #represented sites)
+ * ALLOCATION_SITES n, n x (method, index), the sites represented
+ *                  by merged objects
+ * STATIC_FIELDS    n, n x (field, pts offset, pts size), sorted
+ * INSTANCE_FIELDS  n, n x (object, field, pts offset, pts size), sorted
+ * ARRAY_INDEXES    n, n x (array object, pts offset, pts size), sorted
+ * CALL_GRAPH       entry methods, reachable methods, and
+ *                  edges (caller, call site index, callee, call kind)
+ * POINTS_TO_SETS   sorted object ids in varint-encoded gaps
+ * </pre>
+ * Strings, methods, fields and objects are referred to by their indexes
+ * in the sections, and -1 stands for absent elements.
+ */
+public final class PointerAnalysisSnapshot {
+
+    static final int MAGIC = 0x54414950;
+
+    static final int VERSION = 3;
+
+    static final int STRINGS = 0;
+
+    static final int METHODS = 1;
+
+    static final int FIELDS = 2;
+
+    static final int VARS = 3;
+
+    static final int OBJECTS = 4;
+
+    static final int ALLOCATION_SITES = 5;
+
+    static final int STATIC_FIELDS = 6;
+
+    static final int INSTANCE_FIELDS = 7;
+
+    static final int ARRAY_INDEXES = 8;
+
+    static final int CALL_GRAPH = 9;
+
+    static final int POINTS_TO_SETS = 10;
+
+    static final int NUMBER_OF_SECTIONS = 11;
+
+    /**
+     * Size of the header, i.e., magic, version and section offsets.
+     */
+    static final int HEADER_SIZE = 4 * (2 + NUMBER_OF_SECTIONS);
+
+    private PointerAnalysisSnapshot() {
+    }
+
+    /**
+     * Writes the context-insensitive results of given pointer analysis
+     * result to a snapshot file.
+     */
+    public static void write(PointerAnalysisResult result, Path file) {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new Writer(result).write(out);
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to write pointer analysis snapshot to " + file, e);
+        }
+    }
+
+    /**
+     * Reads a snapshot file written by {@link #write}.
+     *
+     * @return a read-only pointer analysis result backed by the
+     * memory-mapped snapshot. As the snapshot holds no contexts, the
+     * context-sensitive elements of the result are the elements in
+     * the empty context.
+     */
+    public static PointerAnalysisResult read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new AnalysisException(file + " is not a pointer analysis snapshot" +
+                        " of version " + VERSION);
+            }
+            return new SnapshotResult(buffer);
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to read pointer analysis snapshot from " + file, e);
+        }
+    }
+
+    /**
+     * Converts a pointer analysis result to the sections of a snapshot.
+     */
+    private static class Writer {
+
+        private final PointerAnalysisResult result;
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        private final Map<JMethod, Integer> methods = new LinkedHashMap<>();
+
+        private final Map<JField, Integer> fields = new LinkedHashMap<>();
+
+        private final Map<Obj, Integer> objs = new LinkedHashMap<>();
+
+        private final ByteArrayOutputStream pts = new ByteArrayOutputStream();
+
+        /**
+         * Allocation sites represented by merged objects.
+         */
+        private final List<New> allocationSites = new ArrayList<>();
+
+        private Writer(PointerAnalysisResult result) {
+            this.result = result;
+        }
+
+        private void write(OutputStream out) throws IOException {
+            result.getObjects().forEach(obj -> objs.put(obj, objs.size()));
+            byte[][] sections = new byte[NUMBER_OF_SECTIONS][];
+            // sections that refer to strings, methods and fields come first
+            sections[VARS] = writeVars();
+            sections[OBJECTS] = writeObjects();
+            sections[ALLOCATION_SITES] = writeAllocationSites();
+            sections[STATIC_FIELDS] = writeStaticFields();
+            sections[INSTANCE_FIELDS] = writeInstanceFields();
+            sections[ARRAY_INDEXES] = writeArrayIndexes();
+            sections[CALL_GRAPH] = writeCallGraph();
+            sections[POINTS_TO_SETS] = pts.toByteArray();
+            sections[FIELDS] = writeIds(fields.keySet().stream()
+                    .map(f -> getString(f.getSignature())).toList());
+            sections[METHODS] = writeMethods();
+            sections[STRINGS] = writeStrings();
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            int offset = HEADER_SIZE;
+            for (byte[] section : sections) {
+                data.writeInt(offset);
+                offset += section.length;
+            }
+            for (byte[] section : sections) {
+                data.write(section);
+            }
+            data.flush();
+        }
+
+        private byte[] writeVars() throws IOException {
+            List<Var> vars = new ArrayList<>(result.getVars());
+            vars.forEach(v -> getMethod(v.getMethod()));
+            vars.sort(Comparator.comparingInt((Var v) -> getMethod(v.getMethod()))
+                    .thenComparingInt(Var::getIndex));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(vars.size());
+            for (Var var : vars) {
+                data.writeInt(getMethod(var.getMethod()));
+                data.writeInt(var.getIndex());
+                writePointsToSet(data, result.getPointsToSet(var));
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeObjects() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(objs.size());
+            for (Obj obj : objs.keySet()) {
+                data.writeInt(getString(obj.toString()));
+                data.writeInt(obj.getType() == null ? -1 :
+                        getString(obj.getType().getName()));
+                if (obj.getAllocation() instanceof New newStmt) {
+                    data.writeInt(getMethod(newStmt.getContainer()));
+                    data.writeInt(newStmt.getIndex());
+                } else {
+                    data.writeInt(-1);
+                    data.writeInt(-1);
+                }
+                data.writeInt(obj.getContainerMethod().map(this::getMethod).orElse(-1));
+                data.writeInt(obj.getContainerType() == null ? -1 :
+                        getString(obj.getContainerType().getName()));
+                List<New> sites = getRepresentedSites(obj);
+                data.writeInt(allocationSites.size());
+                data.writeInt(sites.size());
+                allocationSites.addAll(sites);
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * @return the allocation sites of the objects represented by
+         * given object if it is merged, otherwise an empty list.
+         */
+        private static List<New> getRepresentedSites(Obj obj) {
+            List<New> sites = new ArrayList<>();
+            if (obj instanceof MergedObj mergedObj) {
+                for (Obj represented : mergedObj.getAllocation()) {
+                    if (represented.getAllocation() instanceof New site) {
+                        sites.add(site);
+                    }
+                }
+            }
+            return sites;
+        }
+
+        private byte[] writeAllocationSites() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(allocationSites.size());
+            for (New site : allocationSites) {
+                data.writeInt(getMethod(site.getContainer()));
+                data.writeInt(site.getIndex());
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeStaticFields() throws IOException {
+            List<JField> staticFields = result.getStaticFields()
+                    .stream()
+                    .map(StaticField::getField)
+                    .distinct()
+                    .toList();
+            staticFields.forEach(this::getField);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(staticFields.size());
+            for (JField field : staticFields) {
+                data.writeInt(getField(field));
+                writePointsToSet(data, result.getPointsToSet(field));
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeInstanceFields() throws IOException {
+            // merges the instance fields of the objects in different contexts
+            Map<Pair<Integer, Integer>, List<Obj>> instanceFields = Maps.newMap();
+            for (InstanceField instanceField : result.getInstanceFields()) {
+                Pair<Integer, Integer> key = new Pair<>(
+                        objs.get(instanceField.getBase().getObject()),
+                        getField(instanceField.getField()));
+                List<Obj> fieldPts = instanceFields.computeIfAbsent(key, k -> new ArrayList<>());
+                instanceField.getPointsToSet().forEach(o -> fieldPts.add(o.getObject()));
+            }
+            List<Pair<Integer, Integer>> keys = new ArrayList<>(instanceFields.keySet());
+            keys.sort(Comparator.comparingInt((Pair<Integer, Integer> p) -> p.first())
+                    .thenComparingInt(Pair::second));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(keys.size());
+            for (Pair<Integer, Integer> key : keys) {
+                data.writeInt(key.first());
+                data.writeInt(key.second());
+                writePointsToSet(data, instanceFields.get(key));
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeArrayIndexes() throws IOException {
+            // merges the array indexes of the objects in different contexts
+            Map<Integer, List<Obj>> arrayIndexes = Maps.newMap();
+            for (ArrayIndex arrayIndex : result.getArrayIndexes()) {
+                List<Obj> indexPts = arrayIndexes.computeIfAbsent(
+                        objs.get(arrayIndex.getArray().getObject()),
+                        k -> new ArrayList<>());
+                arrayIndex.getPointsToSet().forEach(o -> indexPts.add(o.getObject()));
+            }
+            List<Integer> arrays = new ArrayList<>(arrayIndexes.keySet());
+            arrays.sort(Comparator.naturalOrder());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(arrays.size());
+            for (int array : arrays) {
+                data.writeInt(array);
+                writePointsToSet(data, arrayIndexes.get(array));
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeCallGraph() throws IOException {
+            CallGraph<Invoke, JMethod> callGraph = result.getCallGraph();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            List<JMethod> entries = callGraph.entryMethods().toList();
+            data.writeInt(entries.size());
+            for (JMethod entry : entries) {
+                data.writeInt(getMethod(entry));
+            }
+            List<JMethod> reachable = callGraph.reachableMethods().toList();
+            data.writeInt(reachable.size());
+            for (JMethod method : reachable) {
+                data.writeInt(getMethod(method));
+            }
+            List<Edge<Invoke, JMethod>> edges = callGraph.edges().toList();
+            data.writeInt(edges.size());
+            for (Edge<Invoke, JMethod> edge : edges) {
+                data.writeInt(getMethod(edge.getCallSite().getContainer()));
+                data.writeInt(edge.getCallSite().getIndex());
+                data.writeInt(getMethod(edge.getCallee()));
+                data.writeInt(edge.getKind().ordinal());
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeIds(List<Integer> ids) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(ids.size());
+            for (int id : ids) {
+                data.writeInt(id);
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeMethods() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(methods.size());
+            for (JMethod method : methods.keySet()) {
+                data.writeInt(getString(method.getSignature()));
+                data.writeInt(method.getIR().getVars().size());
+                data.writeInt(method.getIR().getStmts().size());
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] writeStrings() throws IOException {
+            List<byte[]> encoded = strings.keySet()
+                    .stream()
+                    .map(s -> s.getBytes(StandardCharsets.UTF_8))
+                    .toList();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(encoded.size());
+            int offset = 4 + 8 * encoded.size();
+            for (byte[] string : encoded) {
+                data.writeInt(offset);
+                data.writeInt(string.length);
+                offset += string.length;
+            }
+            for (byte[] string : encoded) {
+                data.write(string);
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Writes the offset and size of given points-to set, and appends
+         * its sorted object ids to {@link #pts} as varint-encoded gaps.
+         */
+        private void writePointsToSet(DataOutputStream data, Collection<Obj> objects)
+                throws IOException {
+            int[] ids = objects.stream()
+                    .mapToInt(objs::get)
+                    .sorted()
+                    .distinct()
+                    .toArray();
+            data.writeInt(pts.size());
+            data.writeInt(ids.length);
+            int last = 0;
+            for (int id : ids) {
+                int gap = id - last;
+                while ((gap & ~0x7F) != 0) {
+                    pts.write((gap & 0x7F) | 0x80);
+                    gap >>>= 7;
+                }
+                pts.write(gap);
+                last = id;
+            }
+        }
+
+        private int getString(String string) {
+            return strings.computeIfAbsent(string, s -> strings.size());
+        }
+
+        private int getMethod(JMethod method) {
+            return methods.computeIfAbsent(method, m -> methods.size());
+        }
+
+        private int getField(JField field) {
+            return fields.computeIfAbsent(field, f -> fields.size());
+        }
+    }
+}
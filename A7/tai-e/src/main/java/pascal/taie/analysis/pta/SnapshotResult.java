@@ -0,0 +1,605 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta;
+
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.cs.CSCallGraph;
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
+import pascal.taie.analysis.pta.core.cs.element.CSManager;
+import pascal.taie.analysis.pta.core.cs.element.CSMethod;
+import pascal.taie.analysis.pta.core.cs.element.CSObj;
+import pascal.taie.analysis.pta.core.cs.element.CSVar;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.NumberedCSManager;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.MergedObj;
+import pascal.taie.analysis.pta.core.heap.NewObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AbstractResultHolder;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.ALLOCATION_SITES;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.ARRAY_INDEXES;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.CALL_GRAPH;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.FIELDS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.INSTANCE_FIELDS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.METHODS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.NUMBER_OF_SECTIONS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.OBJECTS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.POINTS_TO_SETS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.STATIC_FIELDS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.STRINGS;
+import static pascal.taie.analysis.pta.PointerAnalysisSnapshot.VARS;
+
+/**
+ * Read-only pointer analysis result backed by a snapshot,
+ * see {@link PointerAnalysisSnapshot} for the layout.
+ * <p>
+ * Points-to sets are decoded from the snapshot on each query, and
+ * methods, fields, variables and objects are resolved from their ids
+ * when they are first needed. The snapshot holds no contexts, thus
+ * the context-sensitive queries are answered by the projection of the
+ * snapshot, in which all elements are in the empty context. The
+ * projection is built on the first context-sensitive query.
+ */
+class SnapshotResult extends AbstractResultHolder
+        implements PointerAnalysisResult {
+
+    private static final int METHOD_SIZE = 12;
+
+    private static final int VAR_SIZE = 16;
+
+    private static final int OBJECT_SIZE = 32;
+
+    private static final int ALLOCATION_SITE_SIZE = 8;
+
+    private static final int STATIC_FIELD_SIZE = 12;
+
+    private static final int INSTANCE_FIELD_SIZE = 16;
+
+    private static final int ARRAY_INDEX_SIZE = 12;
+
+    private final ByteBuffer buffer;
+
+    private final int[] sections = new int[NUMBER_OF_SECTIONS];
+
+    private final JMethod[] methods;
+
+    private final JField[] fields;
+
+    private final Obj[] objs;
+
+    /**
+     * Maps method signatures to ids, which is built on first query.
+     */
+    private Map<String, Integer> methodIds;
+
+    private Map<String, Integer> fieldIds;
+
+    private List<Var> vars;
+
+    private DefaultCallGraph callGraph;
+
+    private final Context emptyContext = new TrieContext.Factory().make();
+
+    /**
+     * Holds the projected context-sensitive elements, which is built on
+     * the first context-sensitive query.
+     */
+    private CSManager csManager;
+
+    private PointerAnalysisResult projection;
+
+    SnapshotResult(ByteBuffer buffer) {
+        this.buffer = buffer;
+        for (int i = 0; i < NUMBER_OF_SECTIONS; ++i) {
+            sections[i] = buffer.getInt(8 + 4 * i);
+        }
+        methods = new JMethod[size(METHODS)];
+        fields = new JField[size(FIELDS)];
+        objs = new Obj[size(OBJECTS)];
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return getProjection().getCSVars();
+    }
+
+    @Override
+    public synchronized Collection<Var> getVars() {
+        if (vars == null) {
+            int n = size(VARS);
+            vars = new ArrayList<>(n);
+            for (int i = 0; i < n; ++i) {
+                int entry = entry(VARS, i, VAR_SIZE);
+                vars.add(getMethod(buffer.getInt(entry))
+                        .getIR().getVar(buffer.getInt(entry + 4)));
+            }
+            vars = Collections.unmodifiableList(vars);
+        }
+        return vars;
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return getProjection().getInstanceFields();
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return getProjection().getArrayIndexes();
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return getProjection().getStaticFields();
+    }
+
+    @Override
+    public Collection<CSObj> getCSObjects() {
+        return getProjection().getCSObjects();
+    }
+
+    @Override
+    public Collection<Obj> getObjects() {
+        List<Obj> objects = new ArrayList<>(objs.length);
+        for (int i = 0; i < objs.length; ++i) {
+            objects.add(getObj(i));
+        }
+        return Collections.unmodifiableList(objects);
+    }
+
+    @Override
+    public synchronized Set<CSObj> getPointsToSet(CSVar var) {
+        // the points-to set of the variable in any context is projected
+        // to the one in the empty context
+        getProjection();
+        int[] ids = getPointsToIds(var.getVar());
+        if (ids.length == 0) {
+            return Set.of();
+        }
+        Set<CSObj> pts = Sets.newHybridSet();
+        for (int id : ids) {
+            pts.add(csManager.getCSObj(emptyContext, getObj(id)));
+        }
+        return Collections.unmodifiableSet(pts);
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var var) {
+        return toObjs(getPointsToIds(var));
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(Var base, JField field) {
+        Integer fieldId = getFieldIds().get(field.getSignature());
+        if (fieldId == null) {
+            return Set.of();
+        }
+        Set<Obj> pts = Sets.newHybridSet();
+        for (int obj : getPointsToIds(base)) {
+            int entry = search(INSTANCE_FIELDS, INSTANCE_FIELD_SIZE, obj, fieldId);
+            if (entry >= 0) {
+                for (int o : decode(entry + 8)) {
+                    pts.add(getObj(o));
+                }
+            }
+        }
+        return Collections.unmodifiableSet(pts);
+    }
+
+    @Override
+    public Set<Obj> getPointsToSet(JField field) {
+        Integer fieldId = getFieldIds().get(field.getSignature());
+        if (fieldId == null) {
+            return Set.of();
+        }
+        int entry = search(STATIC_FIELDS, STATIC_FIELD_SIZE, fieldId);
+        return entry >= 0 ? toObjs(decode(entry + 4)) : Set.of();
+    }
+
+    @Override
+    public CallGraph<CSCallSite, CSMethod> getCSCallGraph() {
+        return getProjection().getCSCallGraph();
+    }
+
+    @Override
+    public synchronized CallGraph<Invoke, JMethod> getCallGraph() {
+        if (callGraph == null) {
+            callGraph = new DefaultCallGraph();
+            int pos = sections[CALL_GRAPH];
+            int nEntries = buffer.getInt(pos);
+            pos += 4;
+            for (int i = 0; i < nEntries; ++i, pos += 4) {
+                callGraph.addEntryMethod(getMethod(buffer.getInt(pos)));
+            }
+            int nReachable = buffer.getInt(pos);
+            pos += 4;
+            for (int i = 0; i < nReachable; ++i, pos += 4) {
+                callGraph.addReachableMethod(getMethod(buffer.getInt(pos)));
+            }
+            int nEdges = buffer.getInt(pos);
+            pos += 4;
+            CallKind[] kinds = CallKind.values();
+            for (int i = 0; i < nEdges; ++i, pos += 16) {
+                Invoke callSite = (Invoke) getMethod(buffer.getInt(pos))
+                        .getIR().getStmt(buffer.getInt(pos + 4));
+                callGraph.addEdge(new Edge<>(kinds[buffer.getInt(pos + 12)],
+                        callSite, getMethod(buffer.getInt(pos + 8))));
+            }
+        }
+        return callGraph;
+    }
+
+    /**
+     * Builds the projection of this snapshot to context-sensitive elements,
+     * i.e., the pointers, objects and call graph in the empty context.
+     */
+    private synchronized PointerAnalysisResult getProjection() {
+        if (projection == null) {
+            csManager = new NumberedCSManager();
+            // creates the objects first, so that they are in the order of ids
+            for (int i = 0; i < objs.length; ++i) {
+                csManager.getCSObj(emptyContext, getObj(i));
+            }
+            for (int i = 0, n = size(VARS); i < n; ++i) {
+                int entry = entry(VARS, i, VAR_SIZE);
+                Var var = getMethod(buffer.getInt(entry))
+                        .getIR().getVar(buffer.getInt(entry + 4));
+                addPointsTo(csManager.getCSVar(emptyContext, var), entry + 8);
+            }
+            for (int i = 0, n = size(STATIC_FIELDS); i < n; ++i) {
+                int entry = entry(STATIC_FIELDS, i, STATIC_FIELD_SIZE);
+                addPointsTo(csManager.getStaticField(
+                        getField(buffer.getInt(entry))), entry + 4);
+            }
+            for (int i = 0, n = size(INSTANCE_FIELDS); i < n; ++i) {
+                int entry = entry(INSTANCE_FIELDS, i, INSTANCE_FIELD_SIZE);
+                addPointsTo(csManager.getInstanceField(
+                        getCSObj(buffer.getInt(entry)),
+                        getField(buffer.getInt(entry + 4))), entry + 8);
+            }
+            for (int i = 0, n = size(ARRAY_INDEXES); i < n; ++i) {
+                int entry = entry(ARRAY_INDEXES, i, ARRAY_INDEX_SIZE);
+                addPointsTo(csManager.getArrayIndex(
+                        getCSObj(buffer.getInt(entry))), entry + 4);
+            }
+            CSCallGraph csCallGraph = new CSCallGraph(csManager);
+            CallGraph<Invoke, JMethod> ciCallGraph = getCallGraph();
+            ciCallGraph.entryMethods().forEach(m ->
+                    csCallGraph.addEntryMethod(csManager.getCSMethod(emptyContext, m)));
+            ciCallGraph.reachableMethods().forEach(m ->
+                    csCallGraph.addReachableMethod(csManager.getCSMethod(emptyContext, m)));
+            ciCallGraph.edges().forEach(e -> csCallGraph.addEdge(new Edge<>(e.getKind(),
+                    csManager.getCSCallSite(emptyContext, e.getCallSite()),
+                    csManager.getCSMethod(emptyContext, e.getCallee()))));
+            projection = new PointerAnalysisResultImpl(csManager, csCallGraph);
+        }
+        return projection;
+    }
+
+    private CSObj getCSObj(int id) {
+        return csManager.getCSObj(emptyContext, getObj(id));
+    }
+
+    /**
+     * Adds the objects of the points-to set at given position to given pointer.
+     */
+    private void addPointsTo(Pointer pointer, int pos) {
+        for (int id : decode(pos)) {
+            pointer.getPointsToSet().addObject(getCSObj(id));
+        }
+    }
+
+    /**
+     * @return the object ids in points-to set of given variable.
+     */
+    private int[] getPointsToIds(Var var) {
+        Integer methodId = getMethodIds().get(var.getMethod().getSignature());
+        if (methodId == null) {
+            return new int[0];
+        }
+        int entry = search(VARS, VAR_SIZE, methodId, var.getIndex());
+        return entry >= 0 ? decode(entry + 8) : new int[0];
+    }
+
+    /**
+     * Binary-searches the entry of given key in a section whose entries
+     * are sorted by their first int.
+     *
+     * @return position of the found entry, or -1 if it is absent.
+     */
+    private int search(int section, int entrySize, int key) {
+        int lo = 0, hi = size(section) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int entry = entry(section, mid, entrySize);
+            int cmp = Integer.compare(buffer.getInt(entry), key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Binary-searches the entry of given key in a section whose entries
+     * are sorted by their first two ints.
+     *
+     * @return position of the found entry, or -1 if it is absent.
+     */
+    private int search(int section, int entrySize, int key1, int key2) {
+        int lo = 0, hi = size(section) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int entry = entry(section, mid, entrySize);
+            int cmp = Integer.compare(buffer.getInt(entry), key1);
+            if (cmp == 0) {
+                cmp = Integer.compare(buffer.getInt(entry + 4), key2);
+            }
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the points-to set whose offset and size are at given position.
+     */
+    private int[] decode(int pos) {
+        int offset = sections[POINTS_TO_SETS] + buffer.getInt(pos);
+        int[] ids = new int[buffer.getInt(pos + 4)];
+        int last = 0;
+        for (int i = 0; i < ids.length; ++i) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(offset++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            last += gap;
+            ids[i] = last;
+        }
+        return ids;
+    }
+
+    private Set<Obj> toObjs(int[] ids) {
+        if (ids.length == 0) {
+            return Set.of();
+        }
+        Set<Obj> pts = Sets.newHybridSet();
+        for (int id : ids) {
+            pts.add(getObj(id));
+        }
+        return Collections.unmodifiableSet(pts);
+    }
+
+    private int size(int section) {
+        return buffer.getInt(sections[section]);
+    }
+
+    private int entry(int section, int i, int entrySize) {
+        return sections[section] + 4 + i * entrySize;
+    }
+
+    private String getString(int id) {
+        int entry = entry(STRINGS, id, 8);
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(sections[STRINGS] + buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private synchronized JMethod getMethod(int id) {
+        if (id < 0) {
+            return null;
+        }
+        JMethod method = methods[id];
+        if (method == null) {
+            int entry = entry(METHODS, id, METHOD_SIZE);
+            String signature = getString(buffer.getInt(entry));
+            method = World.get().getClassHierarchy().getMethod(signature);
+            if (method == null) {
+                throw new AnalysisException("Cannot find method " + signature
+                        + " of pointer analysis snapshot in current program");
+            }
+            if (method.getIR().getVars().size() != buffer.getInt(entry + 4) ||
+                    method.getIR().getStmts().size() != buffer.getInt(entry + 8)) {
+                throw new AnalysisException("IR of method " + signature
+                        + " differs from the one of pointer analysis snapshot");
+            }
+            methods[id] = method;
+        }
+        return method;
+    }
+
+    private synchronized JField getField(int id) {
+        JField field = fields[id];
+        if (field == null) {
+            String signature = getString(buffer.getInt(entry(FIELDS, id, 4)));
+            field = World.get().getClassHierarchy().getField(signature);
+            if (field == null) {
+                throw new AnalysisException("Cannot find field " + signature
+                        + " of pointer analysis snapshot in current program");
+            }
+            fields[id] = field;
+        }
+        return field;
+    }
+
+    private synchronized Map<String, Integer> getMethodIds() {
+        if (methodIds == null) {
+            methodIds = readIds(METHODS, METHOD_SIZE);
+        }
+        return methodIds;
+    }
+
+    private synchronized Map<String, Integer> getFieldIds() {
+        if (fieldIds == null) {
+            fieldIds = readIds(FIELDS, 4);
+        }
+        return fieldIds;
+    }
+
+    private Map<String, Integer> readIds(int section, int entrySize) {
+        int n = size(section);
+        Map<String, Integer> ids = Maps.newMap(n);
+        for (int i = 0; i < n; ++i) {
+            ids.put(getString(buffer.getInt(entry(section, i, entrySize))), i);
+        }
+        return ids;
+    }
+
+    private synchronized Obj getObj(int id) {
+        Obj obj = objs[id];
+        if (obj == null) {
+            int entry = entry(OBJECTS, id, OBJECT_SIZE);
+            Object allocation;
+            int allocMethod = buffer.getInt(entry + 8);
+            int nSites = buffer.getInt(entry + 28);
+            String desc = getString(buffer.getInt(entry));
+            if (allocMethod >= 0) {
+                allocation = getMethod(allocMethod)
+                        .getIR().getStmt(buffer.getInt(entry + 12));
+            } else if (nSites > 0) {
+                allocation = getRepresentedObjs(buffer.getInt(entry + 24), nSites);
+            } else {
+                allocation = desc;
+            }
+            obj = new SnapshotObj(desc, getType(buffer.getInt(entry + 4)),
+                    allocation, getMethod(buffer.getInt(entry + 16)),
+                    getType(buffer.getInt(entry + 20)));
+            objs[id] = obj;
+        }
+        return obj;
+    }
+
+    /**
+     * Rebuilds the objects represented by a merged object from their
+     * allocation sites, so that the allocation of the merged object is
+     * the set of these objects, as the one of {@link MergedObj}.
+     */
+    private Set<Obj> getRepresentedObjs(int offset, int nSites) {
+        Set<Obj> represented = Sets.newHybridSet();
+        for (int i = 0; i < nSites; ++i) {
+            int entry = entry(ALLOCATION_SITES, offset + i, ALLOCATION_SITE_SIZE);
+            New site = (New) getMethod(buffer.getInt(entry))
+                    .getIR().getStmt(buffer.getInt(entry + 4));
+            represented.add(new NewObj(site));
+        }
+        return Collections.unmodifiableSet(represented);
+    }
+
+    private Type getType(int id) {
+        return id < 0 ? null :
+                World.get().getTypeSystem().getType(getString(id));
+    }
+
+    /**
+     * Object read from a snapshot. The objects are interned by
+     * {@link SnapshotResult}, so identity equality suffices.
+     */
+    private static class SnapshotObj implements Obj {
+
+        private final String desc;
+
+        private final Type type;
+
+        private final Object allocation;
+
+        private final JMethod containerMethod;
+
+        private final Type containerType;
+
+        private SnapshotObj(String desc, Type type, Object allocation,
+                            JMethod containerMethod, Type containerType) {
+            this.desc = desc;
+            this.type = type;
+            this.allocation = allocation;
+            this.containerMethod = containerMethod;
+            this.containerType = containerType;
+        }
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public Object getAllocation() {
+            return allocation;
+        }
+
+        @Override
+        public Optional<JMethod> getContainerMethod() {
+            return Optional.ofNullable(containerMethod);
+        }
+
+        @Override
+        public Type getContainerType() {
+            return containerType;
+        }
+
+        @Override
+        public String toString() {
+            return desc;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta.core.cs.element;
+
+import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * CS manager that stores the CS elements in tables indexed by numbers
+ * instead of maps keyed by the element pairs.
+ * <p>
+ * Each table is two-level: its rows are indexed by the number of the
+ * context-insensitive element in a flat array, and each row is a small
+ * open-addressing table keyed by the number of the context (or field),
+ * as an element usually has few contexts. The elements are numbered by
+ * their intrinsic indexes where they exist: variables and call sites by
+ * their indexes in the IR, which index the tables of their methods, and
+ * trie contexts by their indexes. Objects, fields and other contexts are
+ * numbered densely from 0 by maps. Thus, finding a CS element takes at
+ * most one map lookup per key, and array accesses.
+ */
+public class NumberedCSManager implements CSManager {
+
+    private final Numberer<Obj> objNumberer = new Numberer<>();
+
+    private final Numberer<JField> fieldNumberer = new Numberer<>();
+
+    /**
+     * Numbers the contexts other than {@link TrieContext}.
+     */
+    private final Numberer<Context> contextNumberer = new Numberer<>();
+
+    /**
+     * JMethod -> CS variables, call sites and methods of the method.
+     */
+    private final Map<JMethod, MethodElements> methodElements = Maps.newMap();
+
+    /**
+     * Obj x Context -> CSObj.
+     */
+    private final Table<CSObj> objs = new Table<>();
+
+    /**
+     * CSObj x JField -> InstanceField.
+     */
+    private final Table<InstanceField> instanceFields = new Table<>();
+
+    /**
+     * JField -> StaticField.
+     */
+    private StaticField[] staticFieldArray = new StaticField[64];
+
+    /**
+     * CSObj -> ArrayIndex.
+     */
+    private ArrayIndex[] arrayIndexArray = new ArrayIndex[64];
+
+    private final List<Var> varList = new ArrayList<>();
+
+    private final List<CSVar> csVarList = new ArrayList<>();
+
+    private final List<CSObj> csObjList = new ArrayList<>();
+
+    private final List<StaticField> staticFieldList = new ArrayList<>();
+
+    private final List<InstanceField> instanceFieldList = new ArrayList<>();
+
+    private final List<ArrayIndex> arrayIndexList = new ArrayList<>();
+
+    @Override
+    public CSVar getCSVar(Context context, Var var) {
+        MethodElements elems = getMethodElements(var.getMethod());
+        if (elems.vars == null) {
+            elems.vars = new Row[var.getMethod().getIR().getVars().size()];
+        }
+        Row row = elems.vars[var.getIndex()];
+        if (row == null) {
+            row = elems.vars[var.getIndex()] = new Row();
+            varList.add(var);
+        }
+        return get(row, context,
+                () -> addPointer(new CSVar(var, context), csVarList));
+    }
+
+    @Override
+    public CSObj getCSObj(Context heapContext, Obj obj) {
+        return get(objs, objNumberer.getNumber(obj), heapContext, () -> {
+            CSObj csObj = new CSObj(obj, heapContext, csObjList.size());
+            csObjList.add(csObj);
+            return csObj;
+        });
+    }
+
+    @Override
+    public CSCallSite getCSCallSite(Context context, Invoke callSite) {
+        JMethod container = callSite.getContainer();
+        MethodElements elems = getMethodElements(container);
+        if (elems.callSites == null) {
+            elems.callSites = new Row[container.getIR().getStmts().size()];
+        }
+        Row row = elems.callSites[callSite.getIndex()];
+        if (row == null) {
+            row = elems.callSites[callSite.getIndex()] = new Row();
+        }
+        return get(row, context, () -> new CSCallSite(callSite, context));
+    }
+
+    @Override
+    public CSMethod getCSMethod(Context context, JMethod method) {
+        return get(getMethodElements(method).methods, context,
+                () -> new CSMethod(method, context));
+    }
+
+    @Override
+    public StaticField getStaticField(JField field) {
+        int number = fieldNumberer.getNumber(field);
+        if (number >= staticFieldArray.length) {
+            staticFieldArray = Arrays.copyOf(staticFieldArray,
+                    grow(staticFieldArray.length, number));
+        }
+        StaticField staticField = staticFieldArray[number];
+        if (staticField == null) {
+            staticField = addPointer(new StaticField(field), staticFieldList);
+            staticFieldArray[number] = staticField;
+        }
+        return staticField;
+    }
+
+    @Override
+    public InstanceField getInstanceField(CSObj base, JField field) {
+        int fieldNumber = fieldNumberer.getNumber(field);
+        InstanceField instanceField = instanceFields.get(base.getNumber(), fieldNumber);
+        if (instanceField == null) {
+            instanceField = addPointer(new InstanceField(base, field), instanceFieldList);
+            instanceFields.put(base.getNumber(), fieldNumber, instanceField);
+        }
+        return instanceField;
+    }
+
+    @Override
+    public ArrayIndex getArrayIndex(CSObj array) {
+        int index = array.getNumber();
+        if (index >= arrayIndexArray.length) {
+            arrayIndexArray = Arrays.copyOf(arrayIndexArray,
+                    grow(arrayIndexArray.length, index));
+        }
+        ArrayIndex arrayIndex = arrayIndexArray[index];
+        if (arrayIndex == null) {
+            arrayIndex = addPointer(new ArrayIndex(array), arrayIndexList);
+            arrayIndexArray[index] = arrayIndex;
+        }
+        return arrayIndex;
+    }
+
+    @Override
+    public Collection<Var> getVars() {
+        return Collections.unmodifiableList(varList);
+    }
+
+    @Override
+    public Collection<CSVar> getCSVarsOf(Var var) {
+        MethodElements elems = methodElements.get(var.getMethod());
+        if (elems == null || elems.vars == null
+                || elems.vars[var.getIndex()] == null) {
+            return List.of();
+        }
+        return elems.vars[var.getIndex()].getValues();
+    }
+
+    @Override
+    public Collection<CSVar> getCSVars() {
+        return Collections.unmodifiableList(csVarList);
+    }
+
+    @Override
+    public Collection<CSObj> getObjects() {
+        return Collections.unmodifiableList(csObjList);
+    }
+
+    @Override
+    public Collection<StaticField> getStaticFields() {
+        return Collections.unmodifiableList(staticFieldList);
+    }
+
+    @Override
+    public Collection<InstanceField> getInstanceFields() {
+        return Collections.unmodifiableList(instanceFieldList);
+    }
+
+    @Override
+    public Collection<ArrayIndex> getArrayIndexes() {
+        return Collections.unmodifiableList(arrayIndexList);
+    }
+
+    private MethodElements getMethodElements(JMethod method) {
+        MethodElements elems = methodElements.get(method);
+        if (elems == null) {
+            elems = new MethodElements();
+            methodElements.put(method, elems);
+        }
+        return elems;
+    }
+
+    private <E> E get(Row row, Context context, Supplier<E> factory) {
+        int contextNumber = getContextNumber(context);
+        E elem = row.get(contextNumber);
+        if (elem == null) {
+            elem = factory.get();
+            row.put(contextNumber, elem);
+        }
+        return elem;
+    }
+
+    private <E> E get(Table<E> table, int number, Context context,
+                      Supplier<E> factory) {
+        int contextNumber = getContextNumber(context);
+        E elem = table.get(number, contextNumber);
+        if (elem == null) {
+            elem = factory.get();
+            table.put(number, contextNumber, elem);
+        }
+        return elem;
+    }
+
+    /**
+     * @return the number of given context. Trie contexts are already
+     * interned and indexed, thus they are numbered by their indexes,
+     * and other contexts are numbered by negative numbers.
+     */
+    private int getContextNumber(Context context) {
+        return context instanceof TrieContext trieContext ?
+                trieContext.getIndex() : -1 - contextNumberer.getNumber(context);
+    }
+
+    private static <P extends Pointer> P addPointer(P pointer, List<? super P> pointers) {
+        pointer.setPointsToSet(PointsToSetFactory.make());
+        pointers.add(pointer);
+        return pointer;
+    }
+
+    /**
+     * @return new length of an array of given length, so that
+     * the array can hold given index.
+     */
+    private static int grow(int length, int index) {
+        return Math.max(length * 2, index + 1);
+    }
+
+    /**
+     * Numbers elements from 0 in the order they are first numbered.
+     */
+    private static class Numberer<E> {
+
+        private final Map<E, Integer> numbers = Maps.newMap();
+
+        private int getNumber(E elem) {
+            Integer number = numbers.get(elem);
+            if (number == null) {
+                number = numbers.size();
+                numbers.put(elem, number);
+            }
+            return number;
+        }
+
+    }
+
+    /**
+     * CS elements of a method. The rows of variables and call sites are
+     * indexed by the indexes of the variables and statements in the IR,
+     * and are created on the first query, so that CS methods do not
+     * require the IR of their methods.
+     */
+    private static class MethodElements {
+
+        private Row[] vars;
+
+        private Row[] callSites;
+
+        private final Row methods = new Row();
+    }
+
+    /**
+     * Table of elements indexed by two numbers.
+     */
+    private static class Table<E> {
+
+        private Row[] rows = new Row[64];
+
+        private E get(int i, int j) {
+            if (i < rows.length && rows[i] != null) {
+                return rows[i].get(j);
+            }
+            return null;
+        }
+
+        private void put(int i, int j, E elem) {
+            if (i >= rows.length) {
+                rows = Arrays.copyOf(rows, grow(rows.length, i));
+            }
+            if (rows[i] == null) {
+                rows[i] = new Row();
+            }
+            rows[i].put(j, elem);
+        }
+
+    }
+
+    /**
+     * Open-addressing hash table from numbers to elements,
+     * with linear probing.
+     */
+    private static class Row {
+
+        private int[] keys = new int[2];
+
+        private Object[] values = new Object[2];
+
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        private <E> E get(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return (E) values[i];
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <E> List<E> getValues() {
+            List<E> elems = new ArrayList<>(size);
+            for (Object elem : values) {
+                if (elem != null) {
+                    elems.add((E) elem);
+                }
+            }
+            return elems;
+        }
+
+        private void put(int key, Object value) {
+            // keep the load factor at most 1/2
+            if ((size + 1) * 2 > keys.length) {
+                int[] oldKeys = keys;
+                Object[] oldValues = values;
+                keys = new int[oldKeys.length * 2];
+                values = new Object[oldValues.length * 2];
+                for (int i = 0; i < oldKeys.length; ++i) {
+                    if (oldValues[i] != null) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(key, value);
+            ++size;
+        }
+
+        private void insert(int key, Object value) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -23,7 +23,7 @@
 package pascal.taie.analysis.pta.core.cs.selector;
 
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.context.ListContext;
+import pascal.taie.analysis.pta.core.cs.context.TrieContext;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
@@ -36,9 +36,11 @@ import pascal.taie.language.type.Type;
  */
 public class _2TypeSelector implements ContextSelector {
 
+    private final TrieContext.Factory factory = new TrieContext.Factory();
+
     @Override
     public Context getEmptyContext() {
-        return ListContext.make();
+        return factory.make();
     }
 
     @Override
@@ -50,25 +52,12 @@ public class _2TypeSelector implements ContextSelector {
     @Override
     public Context selectContext(CSCallSite callSite, CSObj recv, JMethod callee) {
         // TODO - finish me
-        Context context = recv.getContext();
-        if (context.getLength() == 0) {
-            return ListContext.make(recv.getObject().getContainerType());
-        }
-        return ListContext.make(
-                context.getElementAt(context.getLength() - 1),
-                recv.getObject().getContainerType()
-        );
+        return factory.append(recv.getContext(), recv.getObject().getContainerType(), 2);
     }
 
     @Override
     public Context selectHeapContext(CSMethod method, Obj obj) {
         // TODO - finish me
-        Context context = method.getContext();
-        if (context.getLength() == 0) {
-            return getEmptyContext();
-        }
-        return ListContext.make(
-                context.getElementAt(context.getLength() - 1)
-        );
+        return factory.limit(method.getContext(), 1);
     }
 }
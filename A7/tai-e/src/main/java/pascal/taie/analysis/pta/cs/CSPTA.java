@@ -24,9 +24,10 @@ package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.PointerAnalysisSnapshot;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
-import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.AllocationTypeBasedModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
@@ -35,6 +36,7 @@ import pascal.taie.util.Strings;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 
 /**
  * Context-sensitive pointer analysis.
@@ -50,15 +52,37 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
-        Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
-                getContextSelector(options.getString("cs")));
-        solver.solve();
-        PointerAnalysisResult result = solver.getResult();
+        String snapshotAction = options.getString("snapshot-action");
+        PointerAnalysisResult result;
+        if ("read".equals(snapshotAction)) {
+            // the result read from the snapshot also gives the call graph,
+            // thus the clients of cspta, e.g., cg and ICFG, are consistent
+            result = PointerAnalysisSnapshot.read(getSnapshotFile(options));
+        } else {
+            Solver solver = new Solver(options,
+                    new AllocationTypeBasedModel(options),
+                    getContextSelector(options.getString("cs")));
+            solver.solve();
+            result = solver.getResult();
+            if ("write".equals(snapshotAction)) {
+                PointerAnalysisSnapshot.write(result, getSnapshotFile(options));
+            } else if (snapshotAction != null) {
+                throw new ConfigException("Unexpected snapshot action: " + snapshotAction);
+            }
+        }
         ResultProcessor.process(options, result);
         return result;
     }
 
+    private static Path getSnapshotFile(AnalysisOptions options) {
+        String file = options.getString("snapshot-file");
+        if (file == null) {
+            throw new ConfigException("Missing snapshot file for action "
+                    + options.getString("snapshot-action"));
+        }
+        return Path.of(file);
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
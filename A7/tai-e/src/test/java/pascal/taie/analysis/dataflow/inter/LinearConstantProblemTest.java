@@ -0,0 +1,128 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.inter.LinearConstantProblem.ConstantFunction;
+import pascal.taie.analysis.dataflow.inter.LinearConstantProblem.LinearFunction;
+import pascal.taie.analysis.dataflow.inter.ide.EdgeFunction;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the edge functions of {@link LinearConstantProblem}.
+ */
+public class LinearConstantProblemTest {
+
+    private static final Value UNDEF = Value.getUndef();
+
+    private static final Value NAC = Value.getNAC();
+
+    private static final EdgeFunction<Value> ALL_TOP = new ConstantFunction(UNDEF);
+
+    private static final EdgeFunction<Value> ALL_BOTTOM = new ConstantFunction(NAC);
+
+    private static final EdgeFunction<Value> IDENTITY = new LinearFunction(1, 0);
+
+    private static Value c(int i) {
+        return Value.makeConstant(i);
+    }
+
+    private static EdgeFunction<Value> constant(int i) {
+        return new ConstantFunction(c(i));
+    }
+
+    @Test
+    public void testMeetIdentityWithConstant() {
+        // λx.x ∧ λx.3
+        EdgeFunction<Value> f = IDENTITY.meetWith(constant(3));
+        assertEquals(f, constant(3).meetWith(IDENTITY));
+        assertEquals(c(3), f.computeTarget(c(3)));
+        assertEquals(c(3), f.computeTarget(UNDEF));
+        assertEquals(NAC, f.computeTarget(c(4)));
+        assertEquals(NAC, f.computeTarget(NAC));
+    }
+
+    @Test
+    public void testMeetLinearFunctions() {
+        // λx.2x+1 ∧ λx.x+4 agree on 3
+        EdgeFunction<Value> f = new LinearFunction(2, 1)
+                .meetWith(new LinearFunction(1, 4));
+        assertEquals(c(7), f.computeTarget(c(3)));
+        assertEquals(NAC, f.computeTarget(c(2)));
+        assertEquals(UNDEF, f.computeTarget(UNDEF));
+        // same slopes agree on no constant
+        EdgeFunction<Value> g = new LinearFunction(1, 1)
+                .meetWith(new LinearFunction(1, 2));
+        assertEquals(NAC, g.computeTarget(c(0)));
+        assertEquals(UNDEF, g.computeTarget(UNDEF));
+        // 2x = 3 has no int solution
+        EdgeFunction<Value> h = new LinearFunction(2, 0).meetWith(constant(3));
+        assertEquals(NAC, h.computeTarget(c(1)));
+        assertEquals(c(3), h.computeTarget(UNDEF));
+    }
+
+    @Test
+    public void testMeetWithTopAndBottom() {
+        EdgeFunction<Value> f = new LinearFunction(2, 1);
+        assertEquals(f, f.meetWith(ALL_TOP));
+        assertEquals(f, ALL_TOP.meetWith(f));
+        assertEquals(f, f.meetWith(f));
+        assertEquals(ALL_BOTTOM, f.meetWith(ALL_BOTTOM));
+        assertEquals(ALL_BOTTOM, ALL_BOTTOM.meetWith(f));
+    }
+
+    @Test
+    public void testMeetPointFunctions() {
+        EdgeFunction<Value> f = IDENTITY.meetWith(constant(3));
+        // meeting a function that agrees on the point keeps the point
+        EdgeFunction<Value> g = f.meetWith(new LinearFunction(2, -3));
+        assertEquals(c(3), g.computeTarget(c(3)));
+        assertEquals(c(3), g.computeTarget(UNDEF));
+        assertEquals(NAC, g.computeTarget(c(4)));
+        // meeting a function that disagrees on the point drops it
+        EdgeFunction<Value> h = f.meetWith(constant(4));
+        assertEquals(NAC, h.computeTarget(c(3)));
+        assertEquals(ALL_BOTTOM, h.meetWith(new LinearFunction(1, 1)));
+    }
+
+    @Test
+    public void testCompose() {
+        // x+1, then (λy.y ∧ λy.3): maps 2 to 3
+        EdgeFunction<Value> meet = IDENTITY.meetWith(constant(3));
+        EdgeFunction<Value> f = new LinearFunction(1, 1).composeWith(meet);
+        assertEquals(c(3), f.computeTarget(c(2)));
+        assertEquals(NAC, f.computeTarget(c(3)));
+        assertEquals(c(3), f.computeTarget(UNDEF));
+        // (λx.x ∧ λx.3), then 2y: maps 3 to 6
+        EdgeFunction<Value> g = meet.composeWith(new LinearFunction(2, 0));
+        assertEquals(c(6), g.computeTarget(c(3)));
+        assertEquals(c(6), g.computeTarget(UNDEF));
+        assertEquals(NAC, g.computeTarget(c(1)));
+        // constant functions override
+        assertEquals(constant(5), meet.composeWith(constant(5)));
+        assertEquals(c(3), constant(3).composeWith(meet).computeTarget(NAC));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NodeWorkListTest {
+
+    @Test
+    public void testFIFO() {
+        NodeWorkList workList = new NodeWorkList(4);
+        workList.add(2);
+        workList.add(0);
+        workList.add(3);
+        assertEquals(2, workList.poll());
+        assertEquals(0, workList.poll());
+        assertEquals(3, workList.poll());
+        assertTrue(workList.isEmpty());
+    }
+
+    @Test
+    public void testDuplicates() {
+        NodeWorkList workList = new NodeWorkList(4);
+        assertTrue(workList.add(1));
+        assertFalse(workList.add(1));
+        assertTrue(workList.contains(1));
+        assertEquals(1, workList.poll());
+        assertFalse(workList.contains(1));
+        // a polled node can be added again
+        assertTrue(workList.add(1));
+        assertEquals(1, workList.poll());
+        assertTrue(workList.isEmpty());
+    }
+
+    @Test
+    public void testWrapAround() {
+        int capacity = 5;
+        NodeWorkList workList = new NodeWorkList(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            workList.add(i);
+        }
+        // move the head to the middle of the ring buffer,
+        // then fill the buffer across its end
+        for (int round = 0; round < 3; ++round) {
+            assertEquals(0, workList.poll());
+            assertEquals(1, workList.poll());
+            assertEquals(2, workList.poll());
+            workList.add(0);
+            workList.add(1);
+            workList.add(2);
+            assertEquals(3, workList.poll());
+            assertEquals(4, workList.poll());
+            workList.add(3);
+            workList.add(4);
+        }
+        for (int i = 0; i < capacity; ++i) {
+            assertEquals(i, workList.poll());
+        }
+        assertTrue(workList.isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPollEmpty() {
+        new NodeWorkList(1).poll();
+    }
+}
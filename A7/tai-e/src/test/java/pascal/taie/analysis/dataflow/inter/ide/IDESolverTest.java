@@ -0,0 +1,330 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.inter.ide;
+
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.MockICFG;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link IDESolver} with a small constant propagation problem
+ * on hand-built supergraphs.
+ */
+public class IDESolverTest {
+
+    private static final Value UNDEF = Value.getUndef();
+
+    private static final Value NAC = Value.getNAC();
+
+    private static Value c(int i) {
+        return Value.makeConstant(i);
+    }
+
+    @Test
+    public void testStraightLine() {
+        MockICFG icfg = new MockICFG()
+                .addEntryMethod("main", "entry", "n1", "n2", "n3", "exit")
+                .addNormalEdge("entry", "n1")
+                .addNormalEdge("n1", "n2")
+                .addNormalEdge("n2", "n3")
+                .addNormalEdge("n3", "exit");
+        ToyProblem problem = new ToyProblem()
+                .assign("n1", "x", null, 1) // x = 1
+                .assign("n2", "y", "x", 2) // y = x + 2
+                .assign("n3", "x", "y", 0); // x = y
+        Map<String, Value> values = solve(problem, icfg, "n2");
+        assertEquals(c(1), values.get("x"));
+        assertNull(values.get("y"));
+        values = solve(problem, icfg, "exit");
+        assertEquals(c(3), values.get("x"));
+        assertEquals(c(3), values.get("y"));
+    }
+
+    @Test
+    public void testSummaryReuse() {
+        MockICFG icfg = new MockICFG()
+                .addMethod("inc", "inc.entry", "inc.exit")
+                .addNormalEdge("inc.entry", "inc.exit")
+                .addEntryMethod("main", "entry", "call1", "ret1", "call2", "ret2", "exit")
+                .addNormalEdge("entry", "call1")
+                .addCall("call1", "ret1", "inc")
+                .addNormalEdge("ret1", "call2")
+                .addCall("call2", "ret2", "inc")
+                .addNormalEdge("ret2", "exit");
+        ToyProblem problem = new ToyProblem()
+                .assign("entry", "a", null, 1) // a = 1
+                .call("call1", "r1", "a", "p", "ret") // r1 = inc(a)
+                .assign("inc.entry", "ret", "p", 1) // ret = p + 1
+                .assign("ret1", "b", null, 5) // b = 5
+                .call("call2", "r2", "b", "p", "ret"); // r2 = inc(b)
+        IDESolver<String, String, String, Value> solver =
+                new IDESolver<>(problem, icfg);
+        solver.solve();
+        assertEquals(c(2), solver.getValuesAt("call2").get("r1"));
+        assertEquals(c(2), solver.getValuesAt("exit").get("r1"));
+        assertEquals(c(6), solver.getValuesAt("exit").get("r2"));
+        assertEquals(NAC, solver.getValuesAt("inc.entry").get("p"));
+        assertEquals(NAC, solver.getValuesAt("inc.exit").get("ret"));
+        // the body of inc is analyzed once for fact p
+        assertEquals(1, problem.getTransferCount("inc.entry", "p"));
+    }
+
+    @Test
+    public void testBranchesAgree() {
+        Map<String, Value> values = solve(new ToyProblem()
+                .assign("then", "x", null, 3)
+                .assign("else", "y", null, 1)
+                .assign("else2", "x", "y", 2), branches(), "exit");
+        assertEquals(c(3), values.get("x"));
+        assertEquals(c(1), values.get("y"));
+    }
+
+    @Test
+    public void testBranchesDisagree() {
+        Map<String, Value> values = solve(new ToyProblem()
+                .assign("then", "x", null, 3)
+                .assign("else", "y", null, 1)
+                .assign("else2", "x", "y", 3), branches(), "exit");
+        assertEquals(NAC, values.get("x"));
+        assertEquals(c(1), values.get("y"));
+    }
+
+    private static MockICFG branches() {
+        return new MockICFG()
+                .addEntryMethod("main", "entry", "then", "else", "else2", "exit")
+                .addNormalEdge("entry", "then")
+                .addNormalEdge("entry", "else")
+                .addNormalEdge("then", "exit")
+                .addNormalEdge("else", "else2")
+                .addNormalEdge("else2", "exit");
+    }
+
+    private static Map<String, Value> solve(
+            ToyProblem problem, MockICFG icfg, String node) {
+        IDESolver<String, String, String, Value> solver =
+                new IDESolver<>(problem, icfg);
+        solver.solve();
+        return solver.getValuesAt(node);
+    }
+
+    private static Value meet(Value v1, Value v2) {
+        if (v1.isUndef() || v1.equals(v2)) {
+            return v2;
+        } else if (v2.isUndef()) {
+            return v1;
+        } else {
+            return NAC;
+        }
+    }
+
+    /**
+     * Edge function λx.x+b.
+     */
+    private record Shift(int b) implements EdgeFunction<Value> {
+
+        @Override
+        public Value computeTarget(Value input) {
+            return input.isConstant() ?
+                    Value.makeConstant(input.getConstant() + b) : input;
+        }
+
+        @Override
+        public EdgeFunction<Value> composeWith(EdgeFunction<Value> second) {
+            if (second instanceof Shift s) {
+                return new Shift(b + s.b);
+            }
+            return second;
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (equals(other) || ToyProblem.ALL_TOP.equals(other)) {
+                return this;
+            }
+            return ToyProblem.ALL_BOTTOM;
+        }
+    }
+
+    /**
+     * Edge function λx.value.
+     */
+    private record Const(Value value) implements EdgeFunction<Value> {
+
+        @Override
+        public Value computeTarget(Value input) {
+            return value;
+        }
+
+        @Override
+        public EdgeFunction<Value> composeWith(EdgeFunction<Value> second) {
+            return new Const(second.computeTarget(value));
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (value.isUndef() || equals(other)) {
+                return other;
+            } else if (other instanceof Const c) {
+                return new Const(meet(value, c.value));
+            } else if (ToyProblem.ALL_TOP.equals(other)) {
+                return this;
+            }
+            return ToyProblem.ALL_BOTTOM;
+        }
+    }
+
+    /**
+     * Constant propagation over assignments {@code lhs = rhs + b} and
+     * {@code lhs = b}, and calls {@code lhs = callee(arg)}. Statements
+     * take effect on the out edges of their nodes.
+     */
+    private static class ToyProblem implements IDEProblem<String, String, Value> {
+
+        private static final String ZERO = "<zero>";
+
+        private static final EdgeFunction<Value> ALL_TOP = new Const(UNDEF);
+
+        private static final EdgeFunction<Value> ALL_BOTTOM = new Const(NAC);
+
+        private static final EdgeFunction<Value> IDENTITY = new Shift(0);
+
+        private record Assign(String lhs, String rhs, int b) {
+        }
+
+        private record Call(String lhs, String arg, String param, String ret) {
+        }
+
+        private final Map<String, Assign> assigns = Maps.newMap();
+
+        private final Map<String, Call> calls = Maps.newMap();
+
+        private final Map<String, Integer> transferCounts = Maps.newMap();
+
+        ToyProblem assign(String node, String lhs, String rhs, int b) {
+            assigns.put(node, new Assign(lhs, rhs, b));
+            return this;
+        }
+
+        ToyProblem call(String callSite, String lhs, String arg,
+                        String param, String ret) {
+            calls.put(callSite, new Call(lhs, arg, param, ret));
+            return this;
+        }
+
+        int getTransferCount(String node, String fact) {
+            return transferCounts.getOrDefault(node + "/" + fact, 0);
+        }
+
+        @Override
+        public Map<String, Value> getInitialSeeds(String entry) {
+            return Map.of(ZERO, NAC);
+        }
+
+        @Override
+        public Value getTopValue() {
+            return UNDEF;
+        }
+
+        @Override
+        public Value meetValue(Value v1, Value v2) {
+            return meet(v1, v2);
+        }
+
+        @Override
+        public EdgeFunction<Value> getAllTop() {
+            return ALL_TOP;
+        }
+
+        @Override
+        public EdgeFunction<Value> getIdentity() {
+            return IDENTITY;
+        }
+
+        @Override
+        public Map<String, EdgeFunction<Value>> transferNormalEdge(
+                NormalEdge<String> edge, String fact) {
+            String node = edge.getSource();
+            transferCounts.merge(node + "/" + fact, 1, Integer::sum);
+            Assign assign = assigns.get(node);
+            Map<String, EdgeFunction<Value>> result = Maps.newHybridMap();
+            if (assign == null) {
+                result.put(fact, IDENTITY);
+                return result;
+            }
+            if (fact.equals(ZERO)) {
+                result.put(ZERO, IDENTITY);
+                if (assign.rhs() == null) {
+                    result.put(assign.lhs(), new Const(c(assign.b())));
+                }
+            } else if (fact.equals(assign.rhs())) {
+                result.put(assign.lhs(), new Shift(assign.b()));
+            }
+            if (!fact.equals(assign.lhs())) {
+                result.put(fact, IDENTITY);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, EdgeFunction<Value>> transferCallToReturnEdge(
+                CallToReturnEdge<String> edge, String fact) {
+            Call call = calls.get(edge.getSource());
+            return fact.equals(call.lhs()) ? Map.of() : Map.of(fact, IDENTITY);
+        }
+
+        @Override
+        public Map<String, EdgeFunction<Value>> transferCallEdge(
+                CallEdge<String> edge, String fact) {
+            Call call = calls.get(edge.getSource());
+            if (fact.equals(ZERO)) {
+                return Map.of(ZERO, IDENTITY);
+            } else if (fact.equals(call.arg())) {
+                return Map.of(call.param(), IDENTITY);
+            }
+            return Map.of();
+        }
+
+        @Override
+        public Map<String, EdgeFunction<Value>> transferReturnEdge(
+                ReturnEdge<String> edge, String fact) {
+            Call call = calls.get(edge.getCallSite());
+            if (fact.equals(ZERO)) {
+                return Map.of(ZERO, IDENTITY);
+            } else if (fact.equals(call.ret())) {
+                return Map.of(call.lhs(), IDENTITY);
+            }
+            return Map.of();
+        }
+    }
+}
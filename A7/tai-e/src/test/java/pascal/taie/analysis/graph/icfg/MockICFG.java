@@ -0,0 +1,197 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.lang.reflect.Constructor;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Hand-built ICFG for testing inter-procedural solvers without
+ * the frontend. Methods and nodes are represented by their names.
+ */
+public class MockICFG implements ICFG<String, String> {
+
+    private final Set<String> entryMethods = new LinkedHashSet<>();
+
+    private final Map<String, String> entries = Maps.newMap();
+
+    private final Map<String, String> exits = Maps.newMap();
+
+    private final Map<String, String> node2Method = new LinkedHashMap<>();
+
+    private final MultiMap<String, ICFGEdge<String>> inEdges = Maps.newMultiMap();
+
+    private final MultiMap<String, ICFGEdge<String>> outEdges = Maps.newMultiMap();
+
+    private final MultiMap<String, String> callees = Maps.newMultiMap();
+
+    private final MultiMap<String, String> returnSites = Maps.newMultiMap();
+
+    private final MultiMap<String, String> callers = Maps.newMultiMap();
+
+    /**
+     * Adds a method with given nodes. The first node is the entry
+     * and the last node is the exit of the method.
+     */
+    public MockICFG addMethod(String method, String... nodes) {
+        entries.put(method, nodes[0]);
+        exits.put(method, nodes[nodes.length - 1]);
+        for (String node : nodes) {
+            node2Method.put(node, method);
+        }
+        return this;
+    }
+
+    public MockICFG addEntryMethod(String method, String... nodes) {
+        entryMethods.add(method);
+        return addMethod(method, nodes);
+    }
+
+    public MockICFG addNormalEdge(String source, String target) {
+        addEdge(new NormalEdge<>(newCFGEdge(source, target)));
+        return this;
+    }
+
+    /**
+     * Adds the call, call-to-return and return edges of a call site
+     * which invokes given callee.
+     */
+    public MockICFG addCall(String callSite, String returnSite, String callee) {
+        callees.put(callSite, callee);
+        returnSites.put(callSite, returnSite);
+        callers.put(callee, callSite);
+        addEdge(new CallEdge<>(callSite, entries.get(callee), null));
+        addEdge(new CallToReturnEdge<>(newCFGEdge(callSite, returnSite)));
+        addEdge(new ReturnEdge<>(exits.get(callee), returnSite, callSite,
+                List.of(), List.of()));
+        return this;
+    }
+
+    private void addEdge(ICFGEdge<String> edge) {
+        outEdges.put(edge.getSource(), edge);
+        inEdges.put(edge.getTarget(), edge);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Edge<String> newCFGEdge(String source, String target) {
+        try {
+            Constructor<?> ctor = Edge.class.getDeclaredConstructor(
+                    Edge.Kind.class, Object.class, Object.class);
+            ctor.setAccessible(true);
+            return (Edge<String>) ctor.newInstance(
+                    Edge.Kind.FALL_THROUGH, source, target);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Stream<String> entryMethods() {
+        return entryMethods.stream();
+    }
+
+    @Override
+    public Set<ICFGEdge<String>> getInEdgesOf(String node) {
+        return inEdges.get(node);
+    }
+
+    @Override
+    public Set<ICFGEdge<String>> getOutEdgesOf(String node) {
+        return outEdges.get(node);
+    }
+
+    @Override
+    public Set<String> getCalleesOf(String callSite) {
+        return callees.get(callSite);
+    }
+
+    @Override
+    public Set<String> getReturnSitesOf(String callSite) {
+        return returnSites.get(callSite);
+    }
+
+    @Override
+    public String getEntryOf(String method) {
+        return entries.get(method);
+    }
+
+    @Override
+    public String getExitOf(String method) {
+        return exits.get(method);
+    }
+
+    @Override
+    public Set<String> getCallersOf(String method) {
+        return callers.get(method);
+    }
+
+    @Override
+    public String getContainingMethodOf(String node) {
+        return node2Method.get(node);
+    }
+
+    @Override
+    public boolean isCallSite(String node) {
+        return callees.containsKey(node);
+    }
+
+    @Override
+    public boolean hasNode(String node) {
+        return node2Method.containsKey(node);
+    }
+
+    @Override
+    public boolean hasEdge(String source, String target) {
+        return getSuccsOf(source).contains(target);
+    }
+
+    @Override
+    public Set<String> getPredsOf(String node) {
+        Set<String> preds = Sets.newHybridOrderedSet();
+        inEdges.get(node).forEach(e -> preds.add(e.getSource()));
+        return preds;
+    }
+
+    @Override
+    public Set<String> getSuccsOf(String node) {
+        Set<String> succs = Sets.newHybridOrderedSet();
+        outEdges.get(node).forEach(e -> succs.add(e.getTarget()));
+        return succs;
+    }
+
+    @Override
+    public Set<String> getNodes() {
+        return node2Method.keySet();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.pta;
+
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.pta.core.heap.MergedObj;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.cs.CSPTA;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class DemandPointsToTest {
+
+    private static final String CLASS_PATH = "src/test/resources/pta/snapshot";
+
+    /**
+     * Demand queries on the call graph of a context-insensitive result
+     * give the same objects of allocation sites as the result.
+     */
+    @Test
+    public void testSameAsExhaustive() {
+        PointerAnalysisResult pta = runCIPTA();
+        Map<New, Obj> allocObjs = getAllocationObjects(pta);
+        Set<Obj> siteObjs = Set.copyOf(allocObjs.values());
+        DemandPointsTo demandPta = new DemandPointsTo(pta.getCallGraph(),
+                allocObjs::get, var -> {
+                    fail("Query of " + var + " runs out of budget");
+                    return null;
+                });
+        for (Var var : pta.getVars()) {
+            Set<Obj> expected = pta.getPointsToSet(var)
+                    .stream()
+                    .filter(siteObjs::contains)
+                    .collect(Collectors.toSet());
+            assertEquals("points-to set of " + var,
+                    expected, demandPta.getPointsToSet(var));
+        }
+    }
+
+    @Test
+    public void testFallback() {
+        PointerAnalysisResult pta = runCIPTA();
+        Set<Obj> fallback = Set.of();
+        DemandPointsTo demandPta = new DemandPointsTo(pta.getCallGraph(),
+                getAllocationObjects(pta)::get, var -> fallback, 0);
+        Var var = pta.getVars()
+                .stream()
+                .filter(v -> !pta.getPointsToSet(v).isEmpty())
+                .findFirst()
+                .orElseThrow();
+        assertSame(fallback, demandPta.getPointsToSet(var));
+    }
+
+    private static PointerAnalysisResult runCIPTA() {
+        Main.main(new String[]{"-pp", "-cp", CLASS_PATH, "-m", "Snapshot",
+                "-a", "cspta=cs:ci"});
+        return World.get().getResult(CSPTA.ID);
+    }
+
+    /**
+     * Maps the allocation sites to the objects of given result,
+     * including the sites represented by merged objects.
+     */
+    private static Map<New, Obj> getAllocationObjects(PointerAnalysisResult pta) {
+        Map<New, Obj> allocObjs = Maps.newMap();
+        pta.getObjects().forEach(obj -> {
+            if (obj instanceof MergedObj mergedObj) {
+                for (Obj represented : mergedObj.getAllocation()) {
+                    if (represented.getAllocation() instanceof New site) {
+                        allocObjs.put(site, obj);
+                    }
+                }
+            } else if (obj.getAllocation() instanceof New site) {
+                allocObjs.put(site, obj);
+            }
+        });
+        return allocObjs;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta;
+
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
+import pascal.taie.analysis.pta.core.cs.element.Pointer;
+import pascal.taie.analysis.pta.core.cs.element.StaticField;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.cs.CSPTA;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Maps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class PointerAnalysisSnapshotTest {
+
+    private static final String CLASS_PATH = "src/test/resources/pta/snapshot";
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = Files.createTempFile("pta-", ".snapshot");
+        try {
+            Main.main(new String[]{"-pp", "-cp", CLASS_PATH, "-m", "Snapshot",
+                    "-a", "cspta=cs:2-obj;snapshot-action:write;snapshot-file:" + file});
+            PointerAnalysisResult written = World.get().getResult(CSPTA.ID);
+            PointerAnalysisResult read = PointerAnalysisSnapshot.read(file);
+            assertEquals(toStrings(written.getObjects()), toStrings(read.getObjects()));
+            assertEquals(getRepresentedObjects(written.getObjects()),
+                    getRepresentedObjects(read.getObjects()));
+            assertEquals(Set.copyOf(written.getVars()), Set.copyOf(read.getVars()));
+            for (Var var : written.getVars()) {
+                assertEquals(toStrings(written.getPointsToSet(var)),
+                        toStrings(read.getPointsToSet(var)));
+            }
+            for (StaticField field : written.getStaticFields()) {
+                assertEquals(toStrings(written.getPointsToSet(field.getField())),
+                        toStrings(read.getPointsToSet(field.getField())));
+            }
+            Function<InstanceField, String> fieldKey = f ->
+                    f.getBase().getObject() + "." + f.getField().getName();
+            assertEquals(project(written.getInstanceFields(), fieldKey),
+                    project(read.getInstanceFields(), fieldKey));
+            Function<ArrayIndex, String> arrayKey = a -> a.getArray().getObject() + "[*]";
+            assertEquals(project(written.getArrayIndexes(), arrayKey),
+                    project(read.getArrayIndexes(), arrayKey));
+            assertEquals(toStrings(written.getCallGraph().edges().toList()),
+                    toStrings(read.getCallGraph().edges().toList()));
+            // the projection of the snapshot holds the same call edges
+            assertEquals(written.getCallGraph().edges().count(),
+                    read.getCSCallGraph().edges().count());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Merges the points-to sets of the pointers by their keys, which
+     * removes the contexts of the objects.
+     */
+    private static <P extends Pointer> Map<String, Set<String>> project(
+            Collection<P> pointers, Function<P, String> key) {
+        Map<String, Set<String>> result = Maps.newMap();
+        for (P pointer : pointers) {
+            Set<String> pts = result.computeIfAbsent(key.apply(pointer), k -> new TreeSet<>());
+            pointer.getPointsToSet().objects()
+                    .map(o -> o.getObject().toString())
+                    .forEach(pts::add);
+        }
+        return result;
+    }
+
+    /**
+     * @return the objects represented by each merged object,
+     * e.g., the merged exception objects.
+     */
+    private static Map<String, Set<String>> getRepresentedObjects(Collection<Obj> objs) {
+        Map<String, Set<String>> result = Maps.newMap();
+        for (Obj obj : objs) {
+            if (obj.getAllocation() instanceof Collection<?> represented) {
+                result.put(obj.toString(), toStrings(represented));
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> toStrings(Collection<?> elements) {
+        return elements.stream()
+                .map(Object::toString)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
@@ -0,0 +1,52 @@
+class Array {
+
+    public static void main(String[] args) {
+        int[] a1 = {1, 2, 3, 5, 7, 9};
+        int x = a1[3];
+        int[] a2 = new int[3];
+        a2[0] = 666;
+        a2[1] = 888;
+        a2[2] = 999;
+        int y = a2[1];
+        int z = a2[2];
+    }
+}
+
+class Snapshot {
+
+    static Node head;
+
+    public static void main(String[] args) {
+        Node n1 = new Node();
+        Node n2 = new Node();
+        n1.next = n2;
+        head = n1;
+        Node[] nodes = new Node[2];
+        nodes[0] = n1;
+        nodes[1] = new Node();
+        Node m = nodes[1];
+        m.next = head.next;
+        A a = args.length > 0 ? new A() : new B();
+        a.set(n2, m);
+        // exception objects are merged by the heap model
+        Exception e = args.length > 0 ?
+                new RuntimeException() : new IllegalStateException();
+    }
+}
+
+class Node {
+    Node next;
+}
+
+class A {
+    void set(Node n, Node next) {
+        n.next = next;
+    }
+}
+
+class B extends A {
+    @Override
+    void set(Node n, Node next) {
+        next.next = n;
+    }
+}
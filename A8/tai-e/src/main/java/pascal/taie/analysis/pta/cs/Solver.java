@@ -32,14 +32,12 @@ import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
-import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
 import pascal.taie.analysis.pta.core.cs.element.CSCallSite;
 import pascal.taie.analysis.pta.core.cs.element.CSManager;
 import pascal.taie.analysis.pta.core.cs.element.CSMethod;
 import pascal.taie.analysis.pta.core.cs.element.CSObj;
 import pascal.taie.analysis.pta.core.cs.element.CSVar;
-import pascal.taie.analysis.pta.core.cs.element.InstanceField;
-import pascal.taie.analysis.pta.core.cs.element.MapBasedCSManager;
+import pascal.taie.analysis.pta.core.cs.element.NumberedCSManager;
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.core.cs.element.StaticField;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
@@ -106,7 +104,7 @@ public class Solver {
     }
 
     private void initialize() {
-        csManager = new MapBasedCSManager();
+        csManager = new NumberedCSManager();
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
         workList = new WorkList();
@@ -245,31 +243,33 @@ public class Solver {
             if (pointer instanceof CSVar csVar) {
                 Var var = csVar.getVar();
                 Context context = csVar.getContext();
-                for (CSObj csObj : delta) {
-                    for (StoreField store : var.getStoreFields()) {
-                        JField instanceField = store.getFieldRef().resolve();
-                        InstanceField targetPtr = csManager.getInstanceField(csObj, instanceField);
-                        CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
-                        addPFGEdge(sourcePtr, targetPtr);
+                for (StoreField store : var.getStoreFields()) {
+                    JField instanceField = store.getFieldRef().resolve();
+                    CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
+                    for (CSObj csObj : delta) {
+                        addPFGEdge(sourcePtr, csManager.getInstanceField(csObj, instanceField));
                     }
-                    for (LoadField load : var.getLoadFields()) {
-                        JField instanceField = load.getFieldRef().resolve();
-                        InstanceField sourcePtr = csManager.getInstanceField(csObj, instanceField);
-                        CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
-                        addPFGEdge(sourcePtr, targetPtr);
+                }
+                for (LoadField load : var.getLoadFields()) {
+                    JField instanceField = load.getFieldRef().resolve();
+                    CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
+                    for (CSObj csObj : delta) {
+                        addPFGEdge(csManager.getInstanceField(csObj, instanceField), targetPtr);
                     }
-                    for (StoreArray store : var.getStoreArrays()) {
-                        ArrayIndex targetPtr = csManager.getArrayIndex(csObj);
-                        CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
-                        addPFGEdge(sourcePtr, targetPtr);
+                }
+                for (StoreArray store : var.getStoreArrays()) {
+                    CSVar sourcePtr = csManager.getCSVar(context, store.getRValue());
+                    for (CSObj csObj : delta) {
+                        addPFGEdge(sourcePtr, csManager.getArrayIndex(csObj));
                     }
-                    for (LoadArray load : var.getLoadArrays()) {
-                        ArrayIndex sourcePtr = csManager.getArrayIndex(csObj);
-                        CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
-                        addPFGEdge(sourcePtr, targetPtr);
+                }
+                for (LoadArray load : var.getLoadArrays()) {
+                    CSVar targetPtr = csManager.getCSVar(context, load.getLValue());
+                    for (CSObj csObj : delta) {
+                        addPFGEdge(csManager.getArrayIndex(csObj), targetPtr);
                     }
-                    processCall(csVar, csObj);
                 }
+                processCall(csVar, delta);
             }
         }
     }
@@ -322,28 +322,15 @@ public class Solver {
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
      *
-     * @param recv    the receiver variable
-     * @param recvObj set of new discovered objects pointed by the variable.
+     * @param recv     the receiver variable
+     * @param recvObjs set of new discovered objects pointed by the variable.
      */
-    private void processCall(CSVar recv, CSObj recvObj) {
+    private void processCall(CSVar recv, PointsToSet recvObjs) {
         // TODO - finish me
         Var recvVar = recv.getVar();
         Context recvContext = recv.getContext();
         for (Invoke callSite : recvVar.getInvokes()) {
-            JMethod method = resolveCallee(recvObj, callSite);
             CSCallSite csCallSite = csManager.getCSCallSite(recvContext, callSite);
-            Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, method);
-            CSMethod csMethod = csManager.getCSMethod(calleeContext, method);
-
-            // deal with taint analysis:
-            //      call(base-to-result)
-            //      call(arg-to-base)
-            //      call(arg-to-result)
-            taintAnalysis.captureTaintTransfer(method, recv, csCallSite);
-
-            CSVar thisPtr = csManager.getCSVar(calleeContext, method.getIR().getThis());
-            workList.addEntry(thisPtr, PointsToSetFactory.make(recvObj));
-
             CallKind callKind;
             if (callSite.isStatic()) { callKind = CallKind.STATIC; }
             else if (callSite.isSpecial()) { callKind = CallKind.SPECIAL; }
@@ -352,8 +339,23 @@ public class Solver {
             else if (callSite.isDynamic()) { callKind = CallKind.DYNAMIC; }
             else { callKind = CallKind.OTHER; }
 
-            if (callGraph.addEdge(new Edge<>(callKind, csCallSite, csMethod))) {
-                handleNewReachableMethod(csMethod, csCallSite);
+            for (CSObj recvObj : recvObjs) {
+                JMethod method = resolveCallee(recvObj, callSite);
+                Context calleeContext = contextSelector.selectContext(csCallSite, recvObj, method);
+                CSMethod csMethod = csManager.getCSMethod(calleeContext, method);
+
+                // deal with taint analysis:
+                //      call(base-to-result)
+                //      call(arg-to-base)
+                //      call(arg-to-result)
+                taintAnalysis.captureTaintTransfer(method, recv, csCallSite);
+
+                CSVar thisPtr = csManager.getCSVar(calleeContext, method.getIR().getThis());
+                workList.addEntry(thisPtr, PointsToSetFactory.make(recvObj));
+
+                if (callGraph.addEdge(new Edge<>(callKind, csCallSite, csMethod))) {
+                    handleNewReachableMethod(csMethod, csCallSite);
+                }
             }
         }
     }
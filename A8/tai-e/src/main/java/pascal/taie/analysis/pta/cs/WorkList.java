@@ -24,22 +24,76 @@ package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.pta.core.cs.element.Pointer;
 import pascal.taie.analysis.pta.pts.PointsToSet;
+import pascal.taie.analysis.pta.pts.PointsToSetFactory;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
 
 import java.util.ArrayDeque;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * Represents work list in pointer analysis.
+ * <p>
+ * The work list holds at most one entry for each pointer: when a pointer
+ * is added again before its entry is processed, the given objects are
+ * merged into the pending points-to set of the existing entry, so that
+ * each pointer is propagated once for all objects that flowed into it
+ * in the meantime.
  */
 class WorkList {
 
-    private final Queue<Entry> entries = new ArrayDeque<>();
+    /**
+     * Pointers that have pending objects, in FIFO order.
+     */
+    private final Queue<Pointer> pointers = new ArrayDeque<>();
+
+    /**
+     * Pending objects of the pointers in {@link #pointers}.
+     */
+    private final Map<Pointer, PointsToSet> pendingSets = Maps.newMap();
 
     /**
-     * Adds an entry to the work list.
+     * Pointers whose pending sets are owned by this work list. The set of
+     * the first entry of a pointer is kept by reference, and it is copied
+     * only when another set is merged into it, as most pointers are polled
+     * before they are added again.
+     */
+    private final Set<Pointer> ownedSets = Sets.newSet();
+
+    /**
+     * Adds an entry to the work list. If the pointer is already in the
+     * work list, merges the points-to set into its pending set.
+     * <p>
+     * Given set is never modified by the work list, but it may be kept
+     * until the entry is polled, thus callers must not remove objects from
+     * it. Objects added to it in the meantime, e.g., to the points-to set
+     * of a PFG source, are polled with the entry, which is sound as they
+     * flow to the pointer anyway.
      */
     void addEntry(Pointer pointer, PointsToSet pointsToSet) {
-        entries.add(new Entry(pointer, pointsToSet));
+        if (pointsToSet.isEmpty()) {
+            return;
+        }
+        PointsToSet pending = pendingSets.get(pointer);
+        if (pending == null) {
+            pendingSets.put(pointer, pointsToSet);
+            pointers.add(pointer);
+        } else {
+            if (ownedSets.add(pointer)) {
+                // the pending set may be shared, thus copy it before merging
+                pending = copy(pending);
+                pendingSets.put(pointer, pending);
+            }
+            pending.addAll(pointsToSet);
+        }
+    }
+
+    private static PointsToSet copy(PointsToSet pointsToSet) {
+        PointsToSet copy = PointsToSetFactory.make();
+        copy.addAll(pointsToSet);
+        return copy;
     }
 
     /**
@@ -47,19 +101,25 @@ class WorkList {
      * if this work list is empty.
      */
     Entry pollEntry() {
-        return entries.poll();
+        Pointer pointer = pointers.poll();
+        if (pointer == null) {
+            return null;
+        }
+        ownedSets.remove(pointer);
+        return new Entry(pointer, pendingSets.remove(pointer));
     }
 
     /**
      * @return true if the work list is empty, otherwise false.
      */
     boolean isEmpty() {
-        return entries.isEmpty();
+        return pointers.isEmpty();
     }
 
     /**
      * Represents entries in the work list.
-     * Each entry consists of a pointer and a points-to set.
+     * Each entry consists of a pointer and a points-to set, which may be
+     * the set given to {@link #addEntry}, thus it must not be modified.
      */
     record Entry(Pointer pointer, PointsToSet pointsToSet) {
     }